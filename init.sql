@@ -5,9 +5,10 @@ CREATE DATABASE IF NOT EXISTS test
 
 USE cosmoport;
 
-DROP TABLE IF EXISTS ship;
-
-CREATE TABLE ship
+-- The ship schema is owned by the versioned migrations in src/main/resources/db/migration,
+-- which the application applies on startup. This definition mirrors V1 so the sample data can be
+-- loaded before the first start; Flyway then baselines the database at V1 and applies the rest.
+CREATE TABLE IF NOT EXISTS ship
 (
     id       BIGINT(20)  NOT NULL AUTO_INCREMENT,
     name     VARCHAR(50) NULL,
@@ -23,6 +24,9 @@ CREATE TABLE ship
     ENGINE = InnoDB
     DEFAULT CHARACTER SET = utf8;
 
+DELETE FROM ship;
+ALTER TABLE ship AUTO_INCREMENT = 1;
+
 insert into ship(name, planet, shipType, prodDate, isUsed, speed, crewSize, rating)
 values ('Orion III', 'Mars', 'MERCHANT', '2995-01-01', true, 0.82, 617, 1.31)
      , ('Daedalus', 'Jupiter', 'MERCHANT', '3001-01-01', true, 0.94, 1619, 1.98)
@@ -1,33 +1,61 @@
 package com.space.config;
 
+import com.space.diagnostics.CacheMetrics;
+import com.space.diagnostics.HibernateMetrics;
+import com.space.diagnostics.MethodTimer;
+import com.space.diagnostics.MetricsRegistry;
+import com.space.diagnostics.PoolMetrics;
+import com.space.diagnostics.QueryLog;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipColumnStore;
+import com.space.service.ShipService;
+import com.space.service.ShipTextIndex;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 import java.util.Properties;
-
-import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+import java.util.UUID;
 
 @Configuration
 @EnableTransactionManagement
+@EnableScheduling
 @ComponentScan("com.space.service")
 @EnableJpaRepositories(basePackages = "com.space.repository")
+@PropertySource("classpath:application.properties")
 public class AppConfig {
+    @Autowired
+    private Environment environment;
 
     @Bean
+    @DependsOn("flyway")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource());
@@ -41,27 +69,159 @@ public class AppConfig {
     }
 
     @Profile("prod")
-    @Bean
+    @Bean(destroyMethod = "close")
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/cosmoport?serverTimezone=UTC");
-        dataSource.setUsername("root");
-        dataSource.setPassword("root");
-        return dataSource;
+        HikariConfig config = poolConfig();
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        config.setJdbcUrl(environment.getRequiredProperty("db.url"));
+        config.setUsername(environment.getRequiredProperty("db.username"));
+        config.setPassword(environment.getRequiredProperty("db.password"));
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", environment.getProperty("db.pool.statementCacheSize", "250"));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", environment.getProperty("db.pool.statementCacheSqlLimit", "2048"));
+        // sends a JDBC batch of inserts as one multi-row INSERT
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // honours the fetch size with a server-side cursor instead of reading the whole result into memory
+        config.addDataSourceProperty("useCursorFetch", "true");
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        poolMetrics().bind(dataSource);
+        return queryLog().wrap(dataSource);
     }
 
     @Profile("dev")
-    @Bean(name = "dataSource")
+    @Bean(name = "dataSource", destroyMethod = "close")
     public DataSource dataSourceForTests() {
+        HikariConfig config = poolConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+                + ";QUERY_CACHE_SIZE=" + environment.getProperty("db.pool.statementCacheSize", "250"));
+        config.setUsername("sa");
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        poolMetrics().bind(dataSource);
+        return queryLog().wrap(dataSource);
+    }
+
+    // Owns the ship schema in both profiles; a database created by init.sql is baselined at V1.
+    @Bean(initMethod = "migrate")
+    public Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource())
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    // MySQL compares with a case- and accent-insensitive collation, so there the index only narrows the LIKE
+    @Profile("prod")
+    @Bean
+    public ShipTextIndex shipTextIndex() {
+        return new ShipTextIndex(dataSource(), shipLoader(), true);
+    }
+
+    @Profile("dev")
+    @Bean(name = "shipTextIndex")
+    public ShipTextIndex shipTextIndexForTests() {
+        return new ShipTextIndex(dataSource(), shipLoader(), false);
+    }
 
-        return new EmbeddedDatabaseBuilder()
-                .generateUniqueName(true)
-                .setType(H2)
-                .setScriptEncoding("UTF-8")
-                .ignoreFailedDrops(true)
-                .addScript("test.sql")
-                .build();
+    // Reads whole-table state (the text index) off the request path.
+    @Bean
+    public ThreadPoolTaskExecutor shipLoader() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ship-loader-");
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        return executor;
+    }
+
+    @Profile("prod")
+    @Bean
+    public ShipColumnStore shipColumnStore() {
+        return new ShipColumnStore(dataSource(), environment.getProperty("ships.columnStore.enabled", Boolean.class, false), true);
+    }
+
+    @Profile("dev")
+    @Bean(name = "shipColumnStore")
+    public ShipColumnStore shipColumnStoreForTests() {
+        return new ShipColumnStore(dataSource(), environment.getProperty("ships.columnStore.enabled", Boolean.class, false), false);
+    }
+
+    @Bean
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
+    @Bean
+    public QueryLog queryLog() {
+        return new QueryLog(environment.getProperty("db.queryLog.enabled", Boolean.class, false),
+                environment.getProperty("db.queryLog.thresholdMillis", Long.class, 200L));
+    }
+
+    @Bean
+    public MetricsRegistry metricsRegistry() {
+        return new MetricsRegistry(poolMetrics());
+    }
+
+    // Runs the reads of ShipQueries. As many threads as pooled connections, so queued queries wait here, in order,
+    // rather than for a connection; past the queue capacity requests are answered with 503.
+    @Bean
+    public ThreadPoolTaskExecutor shipQueryExecutor() {
+        int threads = environment.getProperty("ships.async.threads", Integer.class,
+                environment.getProperty("db.pool.maxSize", Integer.class, 10));
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ship-query-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(environment.getProperty("ships.async.queueCapacity", Integer.class, 1000));
+        executor.setTaskDecorator(QueryLog::withOrigin);
+        return executor;
+    }
+
+    // Infrastructure role: the transaction auto-proxy creator only applies infrastructure advisors. Ordered first,
+    // so the timers include transaction begin and commit.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor serviceTimingAdvisor() {
+        return timingAdvisor("service", ShipService.class);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor repositoryTimingAdvisor() {
+        return timingAdvisor("repository", ShipRepository.class);
+    }
+
+    private Advisor timingAdvisor(String layer, Class<?> type) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new ComposablePointcut(new RootClassFilter(type)),
+                new MethodTimer(metricsRegistry(), layer, type));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Bean
+    public CacheMetrics cacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return new CacheMetrics(entityManagerFactory);
+    }
+
+    @Bean
+    public HibernateMetrics hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateMetrics(entityManagerFactory);
+    }
+
+    private HikariConfig poolConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("cosmoport");
+        config.setMinimumIdle(environment.getProperty("db.pool.minIdle", Integer.class, 2));
+        config.setMaximumPoolSize(environment.getProperty("db.pool.maxSize", Integer.class, 10));
+        config.setConnectionTimeout(environment.getProperty("db.pool.connectionTimeoutMillis", Long.class, 3000L));
+        config.setIdleTimeout(environment.getProperty("db.pool.idleTimeoutMillis", Long.class, 600000L));
+        config.setMaxLifetime(environment.getProperty("db.pool.maxLifetimeMillis", Long.class, 1800000L));
+        config.setLeakDetectionThreshold(environment.getProperty("db.pool.leakDetectionThresholdMillis", Long.class, 0L));
+        config.setMetricsTrackerFactory(poolMetrics());
+        return config;
     }
 
     @Bean
@@ -81,6 +241,14 @@ public class AppConfig {
         Properties properties = new Properties();
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
 
+        // regions are sized and expired in ehcache.xml
+        properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.setProperty("hibernate.cache.use_query_cache", environment.getProperty("ships.queryCache.enabled", "false"));
+        properties.setProperty("hibernate.cache.region.factory_class", "jcache");
+        properties.setProperty("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+        properties.setProperty("hibernate.javax.cache.uri", "ehcache.xml");
+        properties.setProperty("hibernate.generate_statistics", environment.getProperty("db.statistics.enabled", "false"));
+
         return properties;
     }
 }
\ No newline at end of file
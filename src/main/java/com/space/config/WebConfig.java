@@ -2,25 +2,41 @@ package com.space.config;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.space.controller.MetricsInterceptor;
+import com.space.controller.OffloadingHandlerAdapter;
+import com.space.controller.QueryOriginInterceptor;
+import com.space.controller.ShipController;
+import com.space.controller.ShipFilterArgumentResolver;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.ViewResolver;
-import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.JstlView;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+// Extends WebMvcConfigurationSupport instead of @EnableWebMvc to supply its own RequestMappingHandlerAdapter.
 @Configuration
-@EnableWebMvc
 @ComponentScan("com.space.controller")
-public class WebConfig implements WebMvcConfigurer {
+public class WebConfig extends WebMvcConfigurationSupport {
+    @Autowired
+    private Environment environment;
 
 
     @Bean
@@ -42,11 +58,70 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
     }
 
+    @Bean
+    public MetricsInterceptor metricsInterceptor() {
+        return new MetricsInterceptor();
+    }
+
+    @Bean
+    public QueryOriginInterceptor queryOriginInterceptor() {
+        return new QueryOriginInterceptor();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(metricsInterceptor());
+        registry.addInterceptor(queryOriginInterceptor());
+    }
+
+    // With ships.virtualThreads.enabled every ShipController call, and the blocking service and repository calls
+    // under it, runs on a virtual thread of its own; the container thread goes back to the pool meanwhile.
+    @Override
+    protected RequestMappingHandlerAdapter createRequestMappingHandlerAdapter() {
+        OffloadingHandlerAdapter adapter = new OffloadingHandlerAdapter();
+        adapter.setOffloadTimeout(asyncTimeoutMillis());
+        if (environment.getProperty("ships.virtualThreads.enabled", Boolean.class, false)) {
+            adapter.setOffloadExecutor(new TaskExecutorAdapter(VirtualThreads.newExecutor()), ShipController.class);
+        }
+        return adapter;
+    }
+
+    // Sends /rest/ships/changes events, at most one task per subscriber. A client that stops reading blocks the
+    // thread writing to it until the write fails, so nothing queues behind it: past ships.changes.senderThreads the
+    // pool starts a thread per send, up to one per subscriber, and lets it go once idle.
+    @Bean
+    public ThreadPoolTaskExecutor shipChangeSender() {
+        int threads = environment.getProperty("ships.changes.senderThreads", Integer.class, 4);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ship-changes-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(Math.max(threads, environment.getProperty("ships.changes.maxSubscribers", Integer.class, 1000)));
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    private long asyncTimeoutMillis() {
+        return environment.getProperty("ships.virtualThreads.timeoutMillis", Long.class, 30_000L);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutMillis());
+        configurer.registerCallableInterceptors(queryOriginInterceptor());
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new ShipFilterArgumentResolver());
+    }
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
         MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
         converter.getObjectMapper().setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
         converter.getObjectMapper().setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
         converters.add(converter);
+        // writes the event framing of /rest/ships/changes; nothing else returns plain strings
+        converters.add(new StringHttpMessageConverter(StandardCharsets.UTF_8));
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.space.controller;
+
+import com.space.diagnostics.CacheMetrics;
+import com.space.diagnostics.HibernateMetrics;
+import com.space.diagnostics.MetricsRegistry;
+import com.space.diagnostics.PoolMetrics;
+import com.space.diagnostics.QueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/rest/diagnostics")
+public class DiagnosticsController {
+    private PoolMetrics poolMetrics;
+    private CacheMetrics cacheMetrics;
+    private MetricsRegistry metricsRegistry;
+    private QueryLog queryLog;
+    private HibernateMetrics hibernateMetrics;
+
+    @Autowired
+    public void setPoolMetrics(PoolMetrics poolMetrics) {
+        this.poolMetrics = poolMetrics;
+    }
+
+    @Autowired
+    public void setCacheMetrics(CacheMetrics cacheMetrics) {
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    @Autowired
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Autowired
+    public void setQueryLog(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    @Autowired
+    public void setHibernateMetrics(HibernateMetrics hibernateMetrics) {
+        this.hibernateMetrics = hibernateMetrics;
+    }
+
+    @GetMapping("/pool")
+    public ResponseEntity<Map<String, Object>> getPool() {
+        return new ResponseEntity<>(poolMetrics.snapshot(), HttpStatus.OK);
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCache() {
+        return new ResponseEntity<>(cacheMetrics.snapshot(), HttpStatus.OK);
+    }
+
+    // statement shapes seen since startup; empty unless db.queryLog.enabled is set
+    @GetMapping("/queries")
+    public ResponseEntity<Map<String, Object>> getQueries(@RequestParam(defaultValue = "10") int top) {
+        return new ResponseEntity<>(queryLog.snapshot(Math.max(top, 0)), HttpStatus.OK);
+    }
+
+    @GetMapping("/hibernate")
+    public ResponseEntity<Map<String, Object>> getHibernate(@RequestParam(defaultValue = "10") int top) {
+        return new ResponseEntity<>(hibernateMetrics.snapshot(Math.max(top, 0)), HttpStatus.OK);
+    }
+
+    // Prometheus scrape target
+    @GetMapping("/metrics")
+    public void getMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType(MetricsRegistry.CONTENT_TYPE);
+        metricsRegistry.writePrometheus(response.getWriter());
+    }
+}
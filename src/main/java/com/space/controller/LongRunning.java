@@ -0,0 +1,13 @@
+package com.space.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// A handler that takes as long as the data it streams or changes. When offloaded it gets no async timeout,
+// so the container never answers 503 while the handler is still importing or writing the response.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LongRunning {
+}
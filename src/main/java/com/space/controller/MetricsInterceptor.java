@@ -0,0 +1,56 @@
+package com.space.controller;
+
+import com.space.diagnostics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Records the latency and status of every request by the controller method that handled it. Exceptions mapped
+// through @ResponseStatus are already reflected in the response status here; unmapped ones count as 500.
+// A request handled asynchronously is recorded once, when its last dispatch completes.
+public class MetricsInterceptor implements HandlerInterceptor {
+    private static final String START_ATTRIBUTE = MetricsInterceptor.class.getName() + ".start";
+
+    private final ConcurrentMap<Method, MetricsRegistry.Handler> handlers = new ConcurrentHashMap<>();
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // an async dispatch passes here again; the request started on the first one
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        handler(handler).record(status, System.nanoTime() - (Long) start);
+    }
+
+    private MetricsRegistry.Handler handler(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return metricsRegistry.handler("other");
+        }
+        Method method = ((HandlerMethod) handler).getMethod();
+        MetricsRegistry.Handler metrics = handlers.get(method);
+        return metrics != null ? metrics : handlers.computeIfAbsent(method,
+                key -> metricsRegistry.handler(key.getDeclaringClass().getSimpleName() + "." + key.getName()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.space.controller;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+// Runs the handler methods of the given controllers on an executor instead of the container thread. The invocation
+// becomes a WebAsyncTask: the container thread is released as soon as the arguments are resolved (request body
+// included), and the result is written from an async dispatch, as if the method had returned a Callable.
+// Each invocation gets the offload timeout, or none when the method is @LongRunning.
+public class OffloadingHandlerAdapter extends RequestMappingHandlerAdapter {
+    private static final long NO_TIMEOUT = -1;
+
+    private AsyncTaskExecutor executor;
+    private Set<Class<?>> controllers = new HashSet<>();
+    private long timeoutMillis = 30_000;
+
+    // A null executor runs every handler on the container thread again.
+    public void setOffloadExecutor(AsyncTaskExecutor executor, Class<?>... controllers) {
+        this.controllers = new HashSet<>(Arrays.asList(controllers));
+        this.executor = executor;
+    }
+
+    public void setOffloadTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        AsyncTaskExecutor executor = this.executor;
+        if (executor == null || !controllers.contains(handlerMethod.getBeanType()) || isAsync(handlerMethod)) {
+            return super.createInvocableHandlerMethod(handlerMethod);
+        }
+        long timeout = handlerMethod.hasMethodAnnotation(LongRunning.class) ? NO_TIMEOUT : timeoutMillis;
+        return new OffloadedHandlerMethod(handlerMethod, executor, timeout);
+    }
+
+    // handlers returning a DeferredResult, a future, a Callable or an emitter already release the container thread
+    private static boolean isAsync(HandlerMethod handlerMethod) {
+        Class<?> type = handlerMethod.getReturnType().getParameterType();
+        return DeferredResult.class.isAssignableFrom(type) || CompletionStage.class.isAssignableFrom(type)
+                || Callable.class.isAssignableFrom(type) || WebAsyncTask.class.isAssignableFrom(type)
+                || ResponseBodyEmitter.class.isAssignableFrom(type);
+    }
+
+    private static final class OffloadedHandlerMethod extends ServletInvocableHandlerMethod {
+        private final AsyncTaskExecutor executor;
+        private final long timeout;
+
+        OffloadedHandlerMethod(HandlerMethod handlerMethod, AsyncTaskExecutor executor, long timeout) {
+            super(handlerMethod);
+            this.executor = executor;
+            this.timeout = timeout;
+        }
+
+        // the servlet container reads a timeout of zero or less as none
+        @Override
+        protected Object doInvoke(Object... args) {
+            return new WebAsyncTask<>(timeout, executor, () -> super.doInvoke(args));
+        }
+    }
+}
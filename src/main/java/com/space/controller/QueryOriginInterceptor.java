@@ -0,0 +1,75 @@
+package com.space.controller;
+
+import com.space.diagnostics.QueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+// Tags the statements of a request with its filter shape: the handler and the parameter names it was called with,
+// e.g. "ShipController.findAll?maxSpeed&minSpeed&order=SPEED". Values are left out so that shapes aggregate.
+// A handler offloaded to another thread takes the tag along.
+public class QueryOriginInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+    private static final String ORIGIN_ATTRIBUTE = QueryOriginInterceptor.class.getName() + ".origin";
+
+    private QueryLog queryLog;
+
+    @Autowired
+    public void setQueryLog(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (queryLog.isEnabled() && handler instanceof HandlerMethod) {
+            String origin = origin(request, (HandlerMethod) handler);
+            request.setAttribute(ORIGIN_ATTRIBUTE, origin);
+            QueryLog.setOrigin(origin);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryLog.clearOrigin();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryLog.clearOrigin();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object origin = request.getAttribute(ORIGIN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (origin != null) {
+            QueryLog.setOrigin((String) origin);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        QueryLog.clearOrigin();
+    }
+
+    static String origin(HttpServletRequest request, HandlerMethod handler) {
+        StringBuilder origin = new StringBuilder()
+                .append(handler.getBeanType().getSimpleName()).append('.').append(handler.getMethod().getName());
+        char separator = '?';
+        for (String name : new TreeSet<>(request.getParameterMap().keySet())) {
+            origin.append(separator).append(name);
+            if (name.equals("order")) {
+                origin.append('=').append(request.getParameter(name));
+            }
+            separator = '&';
+        }
+        return origin.toString();
+    }
+}
@@ -0,0 +1,156 @@
+package com.space.controller;
+
+import com.space.exeptions400and404.ServiceUnavailableException;
+import com.space.service.ShipChangeFeed;
+import com.space.service.ShipChangeFeed.ShipChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-sent events for /rest/ships/changes. Every subscriber reads the feed from its own position on the sender
+// executor; a write only nudges the subscribers, so a slow connection holds up nobody but itself. A subscriber that
+// falls further behind than the feed keeps gets a "reset" event (refetch everything) and goes on from the newest entry.
+// One whose send has been blocked for longer than sendTimeoutMillis is dropped: it is woken no more, its stream ends
+// once the write returns, and the client reconnects with Last-Event-ID.
+@Component
+public class ShipChangeStream {
+    static final String RESET = "reset";
+    private static final int BATCH = 100;
+
+    @Autowired
+    ShipChangeFeed feed;
+
+    @Autowired
+    @Qualifier("shipChangeSender")
+    Executor sender;
+
+    @Value("${ships.changes.timeoutMillis:300000}")
+    long timeoutMillis;
+
+    @Value("${ships.changes.maxSubscribers:1000}")
+    int maxSubscribers;
+
+    @Value("${ships.changes.sendTimeoutMillis:10000}")
+    long sendTimeoutMillis;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    // Without a sequence the stream starts with the next change.
+    public SseEmitter subscribe(Long after) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new ServiceUnavailableException();
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, after != null ? after : feed.getLastSequence());
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        feed.addListener(subscriber.listener);
+        subscriber.wake();
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    private final class Subscriber implements Runnable {
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Runnable listener = this::wake;
+        private volatile long position;
+        // when the running send started; 0 while none runs
+        private volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter, long position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+
+        void wake() {
+            if (closed.get()) {
+                return;
+            }
+            if (!scheduled.compareAndSet(false, true)) {
+                long since = sendingSince;
+                // the emitter is left alone: its methods wait for the blocked send
+                if (since != 0 && System.currentTimeMillis() - since > sendTimeoutMillis) {
+                    close();
+                }
+                return;
+            }
+            try {
+                sender.execute(this);
+            } catch (RejectedExecutionException e) {
+                emitter.complete();
+                close();
+            }
+        }
+
+        @Override
+        public void run() {
+            sendingSince = System.currentTimeMillis();
+            try {
+                List<ShipChange> changes = feed.readAfter(position, BATCH);
+                if (changes == null) {
+                    long last = feed.getLastSequence();
+                    emitter.send(SseEmitter.event().id(String.valueOf(last)).name(RESET).data(last));
+                    position = last;
+                } else {
+                    for (ShipChange change : changes) {
+                        if (closed.get()) {
+                            break;
+                        }
+                        emitter.send(SseEmitter.event().id(String.valueOf(change.getSequence())).name(change.getType())
+                                .data(change, MediaType.APPLICATION_JSON));
+                        position = change.getSequence();
+                    }
+                }
+            } catch (IOException e) {
+                // the client went away
+                emitter.completeWithError(e);
+                close();
+                return;
+            } catch (IllegalStateException e) {
+                // completed or timed out meanwhile
+                close();
+                return;
+            } catch (RuntimeException e) {
+                emitter.completeWithError(e);
+                close();
+                return;
+            } finally {
+                sendingSince = 0;
+            }
+            if (closed.get()) {
+                // dropped while sending
+                emitter.complete();
+                return;
+            }
+            scheduled.set(false);
+            // changes appended while sending, or more than one batch behind
+            if (feed.getLastSequence() > position) {
+                wake();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                feed.removeListener(listener);
+                subscribers.decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,84 +1,197 @@
 package com.space.controller;
 
+import com.space.exeptions400and404.BadRequestException;
+import com.space.exeptions400and404.ConflictException;
+import com.space.exeptions400and404.PreconditionRequiredException;
 import com.space.model.Ship;
-import com.space.model.ShipType;
+import com.space.service.ShipBatchResult;
+import com.space.service.ShipBulkResult;
+import com.space.service.ShipCursor;
+import com.space.service.ShipFacets;
+import com.space.service.ShipFilter;
+import com.space.service.ShipImportResult;
+import com.space.service.ShipQueries;
+import com.space.service.ShipSearchResult;
 import com.space.service.ShipService;
+import com.space.service.ShipStatistics;
+import com.space.service.ShipVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/rest")
 public class ShipController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private ShipService shipService;
+    private ShipVersions shipVersions;
+    private ShipQueries shipQueries;
+    private ShipChangeStream shipChangeStream;
+    private ShipStatistics shipStatistics;
 
     @Autowired
     public void setShipService(ShipService shipService) {
         this.shipService = shipService;
     }
 
+    @Autowired
+    public void setShipVersions(ShipVersions shipVersions) {
+        this.shipVersions = shipVersions;
+    }
+
+    @Autowired
+    public void setShipQueries(ShipQueries shipQueries) {
+        this.shipQueries = shipQueries;
+    }
+
+    @Autowired
+    public void setShipChangeStream(ShipChangeStream shipChangeStream) {
+        this.shipChangeStream = shipChangeStream;
+    }
+
+    @Autowired
+    public void setShipStatistics(ShipStatistics shipStatistics) {
+        this.shipStatistics = shipStatistics;
+    }
+
     @GetMapping("/ships")
-    public ResponseEntity<List<Ship>> findAll(@RequestParam(value = "name", required = false) String name,
-                                              @RequestParam(value = "planet", required = false) String planet,
-                                              @RequestParam(value = "shipType", required = false) ShipType shipType,
-                                              @RequestParam(value = "after", required = false) Long after,
-                                              @RequestParam(value = "before", required = false) Long before,
-                                              @RequestParam(value = "isUsed", required = false) Boolean isUsed,
-                                              @RequestParam(value = "minSpeed", required = false) Double minSpeed,
-                                              @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
-                                              @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
-                                              @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
-                                              @RequestParam(value = "minRating", required = false) Double minRating,
-                                              @RequestParam(value = "maxRating", required = false) Double maxRating,
-                                              @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
-                                              @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
-                                              @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize) {
-
-        Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
-
-        Specification<Ship> specification = Specification.where(shipService.selectByName(name)
-                .and(shipService.selectByPlanet(planet))
-                .and(shipService.selectByShipType(shipType))
-                .and(shipService.selectByProdDate(after, before))
-                .and(shipService.selectByUse(isUsed))
-                .and(shipService.selectBySpeed(minSpeed, maxSpeed))
-                .and(shipService.selectByCrewSize(minCrewSize, maxCrewSize))
-                .and(shipService.selectByRating(minRating, maxRating)));
-
-        return new ResponseEntity<>(shipService.getShipsList(specification, pageable).getContent(), HttpStatus.OK);
+    public DeferredResult<ResponseEntity<List<Ship>>> findAll(ShipFilter filter,
+                                                              @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+                                                              @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+                                                              @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+                                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                                              WebRequest request) {
+
+        if (request.checkNotModified(listETag())) {
+            return null;
+        }
+
+        if (cursor != null) {
+            return findAfter(filter, order, pageSize, cursor);
+        }
+
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, order.getSort());
+
+        return deferred(shipQueries.page(filter, pageable), ships -> new ResponseEntity<>(ships, HttpStatus.OK));
+    }
+
+    // Keyset mode: an empty cursor starts from the beginning, the next one comes back in X-Next-Cursor.
+    private DeferredResult<ResponseEntity<List<Ship>>> findAfter(ShipFilter filter, ShipOrder order, Integer pageSize, String cursor) {
+        if (pageSize < 1) {
+            throw new BadRequestException();
+        }
+
+        ShipCursor after = cursor.isEmpty() ? null : ShipCursor.decode(cursor, order.getFieldName());
+        return deferred(shipQueries.after(filter, order.getSort(), after, pageSize + 1), ships -> {
+            HttpHeaders headers = new HttpHeaders();
+            if (ships.size() <= pageSize) {
+                return new ResponseEntity<>(ships, headers, HttpStatus.OK);
+            }
+            List<Ship> page = ships.subList(0, pageSize);
+            headers.set(NEXT_CURSOR_HEADER, ShipCursor.of(page.get(pageSize - 1), order.getFieldName()).encode());
+            return new ResponseEntity<>(page, headers, HttpStatus.OK);
+        });
     }
 
     @GetMapping("/ships/count")
-    public ResponseEntity<Integer> getCount(@RequestParam(value = "name", required = false) String name,
-                                            @RequestParam(value = "planet", required = false) String planet,
-                                            @RequestParam(value = "shipType", required = false) ShipType shipType,
-                                            @RequestParam(value = "after", required = false) Long after,
-                                            @RequestParam(value = "before", required = false) Long before,
-                                            @RequestParam(value = "isUsed", required = false) Boolean isUsed,
-                                            @RequestParam(value = "minSpeed", required = false) Double minSpeed,
-                                            @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
-                                            @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
-                                            @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
-                                            @RequestParam(value = "minRating", required = false) Double minRating,
-                                            @RequestParam(value = "maxRating", required = false) Double maxRating) {
-
-        Specification<Ship> specification = Specification.where(shipService.selectByName(name)
-                .and(shipService.selectByPlanet(planet))
-                .and(shipService.selectByShipType(shipType))
-                .and(shipService.selectByProdDate(after, before))
-                .and(shipService.selectByUse(isUsed))
-                .and(shipService.selectBySpeed(minSpeed, maxSpeed))
-                .and(shipService.selectByCrewSize(minCrewSize, maxCrewSize))
-                .and(shipService.selectByRating(minRating, maxRating)));
-
-        return new ResponseEntity<>(shipService.getShipsCount(specification), HttpStatus.OK);
+    public DeferredResult<ResponseEntity<Integer>> getCount(ShipFilter filter, WebRequest request) {
+        if (request.checkNotModified(listETag())) {
+            return null;
+        }
+        return deferred(shipQueries.count(filter), count -> new ResponseEntity<>(count, HttpStatus.OK));
+    }
+
+    // Counts per shipType, planet, production year and isUsed, and min/max/avg of speed, crewSize and rating,
+    // for the same filters as /ships and /ships/count.
+    @GetMapping("/ships/facets")
+    public DeferredResult<ResponseEntity<ShipFacets>> getFacets(ShipFilter filter, WebRequest request) {
+        if (request.checkNotModified(listETag())) {
+            return null;
+        }
+        return deferred(shipQueries.facets(filter), facets -> new ResponseEntity<>(facets, HttpStatus.OK));
+    }
+
+    // Fleet-wide totals, kept current by every write; no query runs.
+    @GetMapping("/ships/statistics")
+    public ResponseEntity<ShipStatistics.Snapshot> getStatistics() {
+        return new ResponseEntity<>(shipStatistics.getSnapshot(), HttpStatus.OK);
+    }
+
+    // Streams every matching ship straight to the response; nothing is collected in memory.
+    @GetMapping("/ships/export")
+    @LongRunning
+    public void export(ShipFilter filter,
+                       @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+                       @RequestParam(value = "format", required = false, defaultValue = "NDJSON") ShipExportFormat format,
+                       HttpServletResponse response) throws IOException {
+
+        response.setContentType(format.getContentType());
+        ShipExportWriter writer = format.writer(response.getOutputStream());
+        shipService.exportShips(filter, order.getSort(), writer);
+        writer.finish();
+    }
+
+    // Committed creates, updates and deletes as server-sent events, each with its sequence as the event id. A client
+    // resumes after a reconnect with Last-Event-ID (EventSource sends it by itself) or ?after=.
+    @GetMapping(value = "/ships/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                              @RequestParam(value = "after", required = false) Long after) {
+        return shipChangeStream.subscribe(lastEventId != null ? lastEventId : after);
+    }
+
+    // Page content and total count in one response, read from one snapshot.
+    @GetMapping("/ships/search")
+    public DeferredResult<ResponseEntity<ShipSearchResult>> search(ShipFilter filter,
+                                                                   @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+                                                                   @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+                                                                   @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+                                                                   WebRequest request) {
+
+        if (request.checkNotModified(listETag())) {
+            return null;
+        }
+
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, order.getSort());
+
+        return deferred(shipQueries.search(filter, pageable), result -> new ResponseEntity<>(result, HttpStatus.OK));
+    }
+
+    // The servlet thread is released while the query runs. When the request times out (503) or its connection
+    // breaks, the query is cancelled: one still queued never runs.
+    private <T, R> DeferredResult<R> deferred(CompletableFuture<T> query, Function<T, R> response) {
+        DeferredResult<R> result = new DeferredResult<>(shipQueries.getTimeoutMillis());
+        query.whenComplete((value, error) -> {
+            if (error == null) {
+                try {
+                    result.setResult(response.apply(value));
+                } catch (RuntimeException e) {
+                    result.setErrorResult(e);
+                }
+            } else if (!(error instanceof CancellationException)) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+        result.onTimeout(() -> query.cancel(false));
+        result.onError(error -> query.cancel(false));
+        return result;
     }
 
     @PostMapping("/ships")
@@ -88,14 +201,99 @@ public class ShipController {
         return new ResponseEntity<>(responseShip, HttpStatus.OK);
     }
 
+    @PostMapping("/ships/batch")
+    @LongRunning
+    public ResponseEntity<List<ShipBatchResult>> createShips(@RequestBody List<Ship> ships) {
+        return new ResponseEntity<>(shipService.createShips(ships), HttpStatus.OK);
+    }
+
+    // The body is parsed while it is read; invalid lines are listed in the result and the rest are imported.
+    @PostMapping("/ships/import")
+    @LongRunning
+    public ResponseEntity<ShipImportResult> importShips(@RequestParam(value = "format", required = false, defaultValue = "NDJSON") ShipExportFormat format,
+                                                        HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(shipService.importShips(format.reader(request.getInputStream())), HttpStatus.OK);
+    }
+
+    // Bulk update and delete take the findAll filter parameters; at least one is required.
+    @PatchMapping("/ships")
+    @LongRunning
+    public ResponseEntity<ShipBulkResult> updateShips(ShipFilter filter, @RequestBody Ship changes) {
+        return new ResponseEntity<>(shipService.updateShips(filter, changes), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/ships")
+    @LongRunning
+    public ResponseEntity<ShipBulkResult> deleteShips(ShipFilter filter) {
+        return new ResponseEntity<>(shipService.deleteShips(filter), HttpStatus.OK);
+    }
+
     @GetMapping("/ships/{id}")
-    public ResponseEntity<Ship> getShipById(@PathVariable String id) {
+    public ResponseEntity<Ship> getShipById(@PathVariable String id, WebRequest request) {
         Ship responseShip;
         Long longId = shipService.checkId(id);
+
+        // a remembered version is current, so it answers If-None-Match without loading the ship
+        Long version = shipVersions.getVersion(longId);
+        if (version != null && request.checkNotModified(shipETag(longId, version))) {
+            return null;
+        }
+
+        long generation = shipVersions.getGeneration();
         responseShip = shipService.getShip(longId);
+        shipVersions.remember(longId, responseShip.getVersion(), generation);
+        if (version == null && request.checkNotModified(shipETag(longId, responseShip.getVersion()))) {
+            return null;
+        }
         return new ResponseEntity<>(responseShip, HttpStatus.OK);
     }
 
+    // A single UPDATE of the fields in the body, rating included; nothing is read back, so the reply is 204.
+    // If-Match is required (428 without it): the ship must still be at the tagged version, otherwise 409.
+    // "*" asks for an unconditional update, which overwrites concurrent edits. The new ETag is always returned.
+    @PatchMapping("/ships/{id}")
+    public ResponseEntity<?> patchShip(@PathVariable String id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       @RequestBody Ship changes) {
+        Long longId = shipService.checkId(id);
+        if (ifMatch == null) {
+            throw new PreconditionRequiredException();
+        }
+        Long expectedVersion = ifMatch.trim().equals("*") ? null : versionOf(longId, ifMatch.trim());
+
+        Long version = shipService.patchShip(longId, expectedVersion, changes);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(shipETag(longId, version));
+        return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+    }
+
+    // parses a tag produced by shipETag; one for another ship can never match
+    private static Long versionOf(long id, String etag) {
+        String prefix = "\"" + id + ".";
+        if (!etag.startsWith("\"") || !etag.endsWith("\"") || etag.length() < 3) {
+            throw new BadRequestException();
+        }
+        if (!etag.startsWith(prefix)) {
+            throw new ConflictException();
+        }
+        try {
+            return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    private static String shipETag(long id, long version) {
+        return "\"" + id + "." + version + "\"";
+    }
+
+    // Lists and counts change whenever any ship does. The generation is read before the query runs,
+    // so a response can carry an older tag than its data, never a newer one.
+    private String listETag() {
+        return "W/\"" + shipVersions.getEpoch() + "." + shipVersions.getGeneration() + "\"";
+    }
+
     @PostMapping("/ships/{id}")
     public ResponseEntity<Ship> updateShip(@PathVariable String id,
                                            @RequestBody Ship ship) {
@@ -0,0 +1,29 @@
+package com.space.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// the formats of /rest/ships/export and /rest/ships/import
+public enum ShipExportFormat {
+    NDJSON("application/x-ndjson;charset=UTF-8"), // default
+    CSV("text/csv;charset=UTF-8");
+
+    private String contentType;
+
+    ShipExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public ShipExportWriter writer(OutputStream out) throws IOException {
+        return this == NDJSON ? new ShipExportWriter.Ndjson(out) : new ShipExportWriter.Csv(out);
+    }
+
+    public ShipImportReader reader(InputStream in) {
+        return this == NDJSON ? new ShipImportReader.Ndjson(in) : new ShipImportReader.Csv(in);
+    }
+}
@@ -0,0 +1,168 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.space.model.Ship;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+// Writes one ship per line and flushes every FLUSH_ROWS rows. On a slow client the flush blocks,
+// which holds the database cursor back instead of buffering rows in memory.
+public abstract class ShipExportWriter implements Consumer<Ship> {
+    static final int FLUSH_ROWS = 1000;
+
+    private long rows;
+
+    @Override
+    public void accept(Ship ship) {
+        try {
+            write(ship);
+            if (++rows % FLUSH_ROWS == 0) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    protected abstract void write(Ship ship) throws IOException;
+
+    protected abstract void flush() throws IOException;
+
+    public abstract void finish() throws IOException;
+
+    // the same field names as the /rest/ships JSON
+    static class Ndjson extends ShipExportWriter {
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        private final JsonGenerator generator;
+
+        Ndjson(OutputStream out) throws IOException {
+            generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        protected void write(Ship ship) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", ship.getId());
+            generator.writeStringField("name", ship.getName());
+            generator.writeStringField("planet", ship.getPlanet());
+            generator.writeStringField("shipType", ship.getShipType() == null ? null : ship.getShipType().name());
+            if (ship.getProdDate() == null) {
+                generator.writeNullField("prodDate");
+            } else {
+                generator.writeNumberField("prodDate", ship.getProdDate().getTime());
+            }
+            writeObjectField("isUsed", ship.getUsed());
+            writeObjectField("speed", ship.getSpeed());
+            writeObjectField("crewSize", ship.getCrewSize());
+            writeObjectField("rating", ship.getRating());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        private void writeObjectField(String name, Object value) throws IOException {
+            generator.writeFieldName(name);
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Boolean) {
+                generator.writeBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                generator.writeNumber((Integer) value);
+            } else {
+                generator.writeNumber((Double) value);
+            }
+        }
+
+        @Override
+        protected void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    static class Csv extends ShipExportWriter {
+        private static final String HEADER = "id,name,planet,shipType,prodDate,isUsed,speed,crewSize,rating\r\n";
+
+        private final Writer writer;
+
+        Csv(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+            writer.write(HEADER);
+        }
+
+        @Override
+        protected void write(Ship ship) throws IOException {
+            writer.write(Long.toString(ship.getId()));
+            writer.write(',');
+            writeText(ship.getName());
+            writer.write(',');
+            writeText(ship.getPlanet());
+            writer.write(',');
+            writeValue(ship.getShipType() == null ? null : ship.getShipType().name());
+            writer.write(',');
+            writeValue(ship.getProdDate() == null ? null : ship.getProdDate().getTime());
+            writer.write(',');
+            writeValue(ship.getUsed());
+            writer.write(',');
+            writeValue(ship.getSpeed());
+            writer.write(',');
+            writeValue(ship.getCrewSize());
+            writer.write(',');
+            writeValue(ship.getRating());
+            writer.write("\r\n");
+        }
+
+        // RFC 4180: quoted when it contains a separator, quote or line break; quotes are doubled
+        private void writeText(String text) throws IOException {
+            if (text == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value != null) {
+                writer.write(value.toString());
+            }
+        }
+
+        @Override
+        protected void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.space.controller;
+
+import com.space.exeptions400and404.BadRequestException;
+import com.space.model.ShipType;
+import com.space.service.ShipFilter;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+// Binds the filter query parameters shared by the list, count and search endpoints,
+// using the same conversions @RequestParam would apply.
+public class ShipFilterArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return ShipFilter.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        WebDataBinder binder = binderFactory.createBinder(webRequest, null, "filter");
+
+        return new ShipFilter(webRequest.getParameter("name"),
+                webRequest.getParameter("planet"),
+                convert(binder, webRequest, "shipType", ShipType.class),
+                convert(binder, webRequest, "after", Long.class),
+                convert(binder, webRequest, "before", Long.class),
+                convert(binder, webRequest, "isUsed", Boolean.class),
+                convert(binder, webRequest, "minSpeed", Double.class),
+                convert(binder, webRequest, "maxSpeed", Double.class),
+                convert(binder, webRequest, "minCrewSize", Integer.class),
+                convert(binder, webRequest, "maxCrewSize", Integer.class),
+                convert(binder, webRequest, "minRating", Double.class),
+                convert(binder, webRequest, "maxRating", Double.class));
+    }
+
+    private <T> T convert(WebDataBinder binder, NativeWebRequest webRequest, String name, Class<T> type) {
+        String value = webRequest.getParameter(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return binder.convertIfNecessary(value, type);
+        } catch (TypeMismatchException e) {
+            throw new BadRequestException();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.space.exeptions400and404.BadRequestException;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipImportRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Parses an upload one line at a time, so only the current line is held in memory. Blank lines are skipped;
+// lines longer than MAX_LINE_CHARS are reported without being buffered.
+public abstract class ShipImportReader implements Iterator<ShipImportRecord> {
+    static final int MAX_LINE_CHARS = 64 * 1024;
+
+    private final BufferedReader reader;
+    private final StringBuilder line = new StringBuilder();
+    private long lineNumber;
+    private ShipImportRecord next;
+
+    ShipImportReader(InputStream in) {
+        reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            while (readLine()) {
+                if (line.length() > MAX_LINE_CHARS) {
+                    next = ShipImportRecord.unparseable(lineNumber, "line longer than " + MAX_LINE_CHARS + " characters");
+                    return true;
+                }
+                if (line.toString().trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    next = ShipImportRecord.parsed(lineNumber, parse(line.toString()));
+                } catch (Exception e) {
+                    next = ShipImportRecord.unparseable(lineNumber, e.getMessage() == null ? e.toString() : e.getMessage());
+                }
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ShipImportRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ShipImportRecord record = next;
+        next = null;
+        return record;
+    }
+
+    // the first line of the upload, for formats that start with a header
+    String readHeader() {
+        try {
+            return readLine() ? line.toString() : "";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected abstract Ship parse(String line) throws Exception;
+
+    // Keeps at most MAX_LINE_CHARS + 1 characters of the line; a longer one is recognised by its length.
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        int c = reader.read();
+        if (c == -1) {
+            return false;
+        }
+        lineNumber++;
+        while (c != -1 && c != '\n') {
+            if (c != '\r' && line.length() <= MAX_LINE_CHARS) {
+                line.append((char) c);
+            }
+            c = reader.read();
+        }
+        return true;
+    }
+
+    // the same field names as the /rest/ships JSON
+    static class Ndjson extends ShipImportReader {
+        private static final ObjectReader SHIP_READER = new ObjectMapper()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .readerFor(Ship.class);
+
+        Ndjson(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        protected Ship parse(String line) throws IOException {
+            Ship ship = SHIP_READER.readValue(line);
+            if (ship == null) {
+                throw new IllegalArgumentException("null is not a ship");
+            }
+            return ship;
+        }
+    }
+
+    // The columns named by the header, in any order; id and rating are ignored as they are on POST /rest/ships.
+    // Quoted values may contain separators and doubled quotes but not line breaks.
+    static class Csv extends ShipImportReader {
+        private static final List<String> COLUMNS = Arrays.asList(
+                "id", "name", "planet", "shipType", "prodDate", "isUsed", "speed", "crewSize", "rating");
+
+        private final int[] columns;
+
+        Csv(InputStream in) {
+            super(in);
+            List<String> header = split(readHeader());
+            columns = new int[header.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = COLUMNS.indexOf(header.get(i).trim());
+                if (columns[i] < 0) {
+                    throw new BadRequestException();
+                }
+            }
+        }
+
+        @Override
+        protected Ship parse(String line) {
+            List<String> values = split(line);
+            if (values.size() != columns.length) {
+                throw new IllegalArgumentException("expected " + columns.length + " values, found " + values.size());
+            }
+            Ship ship = new Ship();
+            for (int i = 0; i < columns.length; i++) {
+                String value = values.get(i);
+                if (value.isEmpty()) {
+                    continue;
+                }
+                switch (COLUMNS.get(columns[i])) {
+                    case "name":
+                        ship.setName(value);
+                        break;
+                    case "planet":
+                        ship.setPlanet(value);
+                        break;
+                    case "shipType":
+                        ship.setShipType(ShipType.valueOf(value));
+                        break;
+                    case "prodDate":
+                        ship.setProdDate(new Date(Long.parseLong(value)));
+                        break;
+                    case "isUsed":
+                        if (!value.equals("true") && !value.equals("false")) {
+                            throw new IllegalArgumentException("isUsed must be true or false: " + value);
+                        }
+                        ship.setUsed(Boolean.valueOf(value));
+                        break;
+                    case "speed":
+                        ship.setSpeed(Double.valueOf(value));
+                        break;
+                    case "crewSize":
+                        ship.setCrewSize(Integer.valueOf(value));
+                        break;
+                    default:
+                }
+            }
+            return ship;
+        }
+
+        private static List<String> split(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        value.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("unterminated quoted value");
+            }
+            values.add(value.toString());
+            return values;
+        }
+    }
+}
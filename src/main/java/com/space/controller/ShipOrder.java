@@ -1,5 +1,7 @@
 package com.space.controller;
 
+import org.springframework.data.domain.Sort;
+
 public enum ShipOrder {
     ID("id"), // default
     SPEED("speed"),
@@ -15,4 +17,10 @@ public enum ShipOrder {
     public String getFieldName() {
         return fieldName;
     }
+
+    // ties are broken by id so that pages never overlap or skip rows; NULLs sort first, as MySQL and H2 both order them
+    public Sort getSort() {
+        Sort sort = Sort.by(fieldName);
+        return this == ID ? sort : sort.and(Sort.by("id"));
+    }
 }
\ No newline at end of file
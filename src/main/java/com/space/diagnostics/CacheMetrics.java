@@ -0,0 +1,73 @@
+package com.space.diagnostics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// Second-level and query cache counters. Hits, misses and puts come from Hibernate's statistics and are null while
+// db.statistics.enabled is off; capacity and TTL evictions from the JCache statistics MXBeans; explicit evictions
+// are counted by the caller.
+public class CacheMetrics {
+    public static final String SHIP_REGION = "ship";
+    public static final String QUERY_REGION = "default-query-results-region";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final LongAdder explicitEvictions = new LongAdder();
+
+    public CacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void recordEviction() {
+        explicitEvictions.increment();
+    }
+
+    public long getExplicitEvictions() {
+        return explicitEvictions.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        boolean enabled = statistics.isStatisticsEnabled();
+        snapshot.put(SHIP_REGION, region(enabled ? statistics.getDomainDataRegionStatistics(SHIP_REGION) : null, enabled, SHIP_REGION));
+        snapshot.put("queries", region(enabled ? statistics.getQueryRegionStatistics(QUERY_REGION) : null, enabled, QUERY_REGION));
+        snapshot.put("explicitEvictions", explicitEvictions.sum());
+        return snapshot;
+    }
+
+    private static Map<String, Object> region(CacheRegionStatistics statistics, boolean enabled, String cacheName) {
+        // Hibernate creates region statistics on first access
+        Map<String, Object> region = new LinkedHashMap<>();
+        region.put("hits", !enabled ? null : statistics == null ? 0 : statistics.getHitCount());
+        region.put("misses", !enabled ? null : statistics == null ? 0 : statistics.getMissCount());
+        region.put("puts", !enabled ? null : statistics == null ? 0 : statistics.getPutCount());
+        region.put("evictions", jcacheEvictions(cacheName));
+        return region;
+    }
+
+    private static long jcacheEvictions(String cacheName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        long evictions = 0;
+        try {
+            Set<ObjectName> names = server.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,CacheManager=*,Cache=" + cacheName), null);
+            for (ObjectName name : names) {
+                evictions += ((Number) server.getAttribute(name, "CacheEvictions")).longValue();
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+        return evictions;
+    }
+}
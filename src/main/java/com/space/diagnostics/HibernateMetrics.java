@@ -0,0 +1,63 @@
+package com.space.diagnostics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Session factory counters and the HQL queries that took longest. Without db.statistics.enabled Hibernate counts
+// nothing, so only that is reported rather than a row of zeros.
+public class HibernateMetrics {
+    private final EntityManagerFactory entityManagerFactory;
+
+    public HibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public Map<String, Object> snapshot(int top) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled()) {
+            return snapshot;
+        }
+        snapshot.put("sessionsOpened", statistics.getSessionOpenCount());
+        snapshot.put("transactions", statistics.getTransactionCount());
+        snapshot.put("statementsPrepared", statistics.getPrepareStatementCount());
+        snapshot.put("queryExecutions", statistics.getQueryExecutionCount());
+        snapshot.put("queryExecutionMaxMillis", statistics.getQueryExecutionMaxTime());
+        snapshot.put("queryExecutionMaxQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        snapshot.put("entityLoads", statistics.getEntityLoadCount());
+        snapshot.put("entityFetches", statistics.getEntityFetchCount());
+        snapshot.put("entityInserts", statistics.getEntityInsertCount());
+        snapshot.put("entityUpdates", statistics.getEntityUpdateCount());
+        snapshot.put("entityDeletes", statistics.getEntityDeleteCount());
+        snapshot.put("flushes", statistics.getFlushCount());
+        snapshot.put("slowestQueries", slowestQueries(statistics, top));
+        return snapshot;
+    }
+
+    private static List<Map<String, Object>> slowestQueries(Statistics statistics, int top) {
+        return Arrays.stream(statistics.getQueries())
+                .map(query -> {
+                    QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("query", query);
+                    entry.put("executions", queryStatistics.getExecutionCount());
+                    entry.put("avgMillis", queryStatistics.getExecutionAvgTime());
+                    entry.put("maxMillis", queryStatistics.getExecutionMaxTime());
+                    entry.put("rows", queryStatistics.getExecutionRowCount());
+                    return entry;
+                })
+                .sorted(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("maxMillis")).reversed())
+                .limit(top)
+                .collect(Collectors.toList());
+    }
+}
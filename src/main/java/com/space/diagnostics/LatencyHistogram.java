@@ -0,0 +1,130 @@
+package com.space.diagnostics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// HDR-style latency histogram: microsecond values are counted exactly below 16 us, then each power of two is
+// split into 8 linear sub-buckets, so a reported percentile is within 12.5% of the true value up to ~19 hours.
+// Recording is lock-free, allocation-free and O(1).
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_MICROS = (1L << 36) - 1;
+    private static final int BUCKETS = index(MAX_MICROS) + 1;
+
+    // exported cumulative boundaries: powers of two from 16 us to ~67 s
+    private static final int FIRST_EXPORTED_POWER = 4;
+    private static final int LAST_EXPORTED_POWER = 26;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        buckets[index(Math.min(Math.max(nanos, 0) / 1_000, MAX_MICROS))].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    // Upper bound of the bucket holding the q-th quantile, in microseconds.
+    public long percentileMicros(double q) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return Math.min(upperBoundMicros(i), maxNanos.get() / 1_000);
+            }
+        }
+        return maxNanos.get() / 1_000;
+    }
+
+    // Cumulative counts at the exported boundaries, in the order of exportedBoundsMicros(), without +Inf.
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[LAST_EXPORTED_POWER - FIRST_EXPORTED_POWER + 1];
+        long seen = 0;
+        int bucket = 0;
+        for (int power = FIRST_EXPORTED_POWER; power <= LAST_EXPORTED_POWER; power++) {
+            // every value below 2^power us lands in a bucket whose upper bound is below 2^power
+            for (; bucket < BUCKETS && upperBoundMicros(bucket) < 1L << power; bucket++) {
+                seen += buckets[bucket].sum();
+            }
+            cumulative[power - FIRST_EXPORTED_POWER] = seen;
+        }
+        return cumulative;
+    }
+
+    public static long[] exportedBoundsMicros() {
+        long[] bounds = new long[LAST_EXPORTED_POWER - FIRST_EXPORTED_POWER + 1];
+        for (int power = FIRST_EXPORTED_POWER; power <= LAST_EXPORTED_POWER; power++) {
+            bounds[power - FIRST_EXPORTED_POWER] = 1L << power;
+        }
+        return bounds;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long total = count.sum();
+        snapshot.put("count", total);
+        snapshot.put("meanMicros", total == 0 ? 0 : totalNanos.sum() / total / 1_000);
+        snapshot.put("p50Micros", percentileMicros(0.5));
+        snapshot.put("p99Micros", percentileMicros(0.99));
+        snapshot.put("p999Micros", percentileMicros(0.999));
+        snapshot.put("maxMicros", maxNanos.get() / 1_000);
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long[] bounds = exportedBoundsMicros();
+        long[] cumulative = cumulativeCounts();
+        long previous = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            counts.put("lt" + bounds[i], cumulative[i] - previous);
+            previous = cumulative[i];
+        }
+        counts.put("ltInf", total - previous);
+        snapshot.put("buckets", counts);
+        return snapshot;
+    }
+
+    private static int index(long micros) {
+        if (micros < 2 * SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long upperBoundMicros(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,36 @@
+package com.space.diagnostics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Times every call that goes through a proxy of `type`; overloads share the Type.method timer.
+public class MethodTimer implements MethodInterceptor {
+    private final MetricsRegistry registry;
+    private final String layer;
+    private final String typeName;
+    private final ConcurrentMap<Method, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    public MethodTimer(MetricsRegistry registry, String layer, Class<?> type) {
+        this.registry = registry;
+        this.layer = layer;
+        this.typeName = type.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        LatencyHistogram timer = timers.get(invocation.getMethod());
+        if (timer == null) {
+            timer = timers.computeIfAbsent(invocation.getMethod(), method -> registry.timer(layer, typeName + "." + method.getName()));
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+}
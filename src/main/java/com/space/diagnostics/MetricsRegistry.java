@@ -0,0 +1,119 @@
+package com.space.diagnostics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Request and method timings, written out in the Prometheus text exposition format (version 0.0.4).
+// Timers and counters are created on first use and live as long as the application; recording into an
+// existing one allocates nothing.
+public class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ConcurrentMap<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> methods = new ConcurrentHashMap<>();
+    private final PoolMetrics poolMetrics;
+
+    public MetricsRegistry(PoolMetrics poolMetrics) {
+        this.poolMetrics = poolMetrics;
+    }
+
+    // Per controller method: latency of every request and the number of responses by status code.
+    public static final class Handler {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        public void record(int status, long nanos) {
+            latency.record(nanos);
+            LongAdder responses = statuses.get(status);
+            if (responses == null) {
+                responses = statuses.computeIfAbsent(status, key -> new LongAdder());
+            }
+            responses.increment();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getResponses(int status) {
+            LongAdder responses = statuses.get(status);
+            return responses == null ? 0 : responses.sum();
+        }
+    }
+
+    public Handler handler(String name) {
+        Handler handler = handlers.get(name);
+        return handler != null ? handler : handlers.computeIfAbsent(name, key -> new Handler());
+    }
+
+    // `layer` is "service" or "repository", `name` is Type.method
+    public LatencyHistogram timer(String layer, String name) {
+        ConcurrentMap<String, LatencyHistogram> timers = methods.computeIfAbsent(layer, key -> new ConcurrentHashMap<>());
+        LatencyHistogram timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    public void writePrometheus(Writer out) throws IOException {
+        Map<String, Handler> sortedHandlers = new TreeMap<>(handlers);
+
+        header(out, "cosmoport_http_request_duration_seconds", "histogram", "Time spent handling a request, by controller method.");
+        for (Map.Entry<String, Handler> handler : sortedHandlers.entrySet()) {
+            histogram(out, "cosmoport_http_request_duration_seconds", "handler=\"" + handler.getKey() + "\"",
+                    handler.getValue().latency);
+        }
+
+        header(out, "cosmoport_http_requests_total", "counter", "Responses sent, by controller method and status code.");
+        for (Map.Entry<String, Handler> handler : sortedHandlers.entrySet()) {
+            for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(handler.getValue().statuses).entrySet()) {
+                sample(out, "cosmoport_http_requests_total", "handler=\"" + handler.getKey() + "\",status=\"" + status.getKey() + "\"",
+                        status.getValue().sum());
+            }
+        }
+
+        header(out, "cosmoport_method_duration_seconds", "histogram", "Time spent in service and repository calls made through their proxies.");
+        for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> layer : new TreeMap<>(methods).entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> method : new TreeMap<>(layer.getValue()).entrySet()) {
+                histogram(out, "cosmoport_method_duration_seconds",
+                        "layer=\"" + layer.getKey() + "\",method=\"" + method.getKey() + "\"", method.getValue());
+            }
+        }
+
+        header(out, "cosmoport_pool_acquire_duration_seconds", "histogram", "Time spent waiting for a database connection.");
+        histogram(out, "cosmoport_pool_acquire_duration_seconds", "", poolMetrics.getAcquireTime());
+        header(out, "cosmoport_pool_timeouts_total", "counter", "Connection requests that timed out.");
+        sample(out, "cosmoport_pool_timeouts_total", "", poolMetrics.getTimeouts());
+        out.flush();
+    }
+
+    private static void header(Writer out, String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void histogram(Writer out, String name, String labels, LatencyHistogram histogram) throws IOException {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long[] bounds = LatencyHistogram.exportedBoundsMicros();
+        long[] cumulative = histogram.cumulativeCounts();
+        long count = histogram.getCount();
+        for (int i = 0; i < bounds.length; i++) {
+            // a bucket can only be ahead of the count that was read before it
+            sample(out, name + "_bucket", prefix + "le=\"" + seconds(bounds[i] * 1_000) + "\"", Math.min(cumulative[i], count));
+        }
+        sample(out, name + "_bucket", prefix + "le=\"+Inf\"", count);
+        out.write(name + "_sum" + (labels.isEmpty() ? "" : "{" + labels + "}") + " " + seconds(histogram.getTotalNanos()) + "\n");
+        sample(out, name + "_count", labels, count);
+    }
+
+    private static void sample(Writer out, String name, String labels, long value) throws IOException {
+        out.write(name + (labels.isEmpty() ? "" : "{" + labels + "}") + " " + value + "\n");
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
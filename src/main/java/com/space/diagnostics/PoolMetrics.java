@@ -0,0 +1,81 @@
+package com.space.diagnostics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects Hikari's per-acquisition callbacks; gauges are read live from the pool MXBean.
+public class PoolMetrics implements MetricsTrackerFactory {
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    private final LatencyHistogram usageTime = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    private volatile HikariDataSource dataSource;
+
+    public void bind(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                connectionsCreated.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireTime.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageTime.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public LatencyHistogram getAcquireTime() {
+        return acquireTime;
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        HikariDataSource pool = dataSource;
+        if (pool != null) {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            snapshot.put("pool", pool.getPoolName());
+            snapshot.put("minIdle", pool.getMinimumIdle());
+            snapshot.put("maxSize", pool.getMaximumPoolSize());
+            if (bean != null) {
+                snapshot.put("active", bean.getActiveConnections());
+                snapshot.put("idle", bean.getIdleConnections());
+                snapshot.put("total", bean.getTotalConnections());
+                snapshot.put("waiters", bean.getThreadsAwaitingConnection());
+            }
+        }
+        snapshot.put("connectionsCreated", connectionsCreated.sum());
+        snapshot.put("timeouts", timeouts.sum());
+        snapshot.put("acquireTime", acquireTime.snapshot());
+        snapshot.put("usageTime", usageTime.snapshot());
+        return snapshot;
+    }
+}
@@ -0,0 +1,214 @@
+package com.space.diagnostics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Aggregates every statement by its shape and logs the ones slower than the threshold with their bind values,
+// row count and the request that issued them. The shape is the SQL with literals replaced by '?': Hibernate inlines
+// numeric criteria values, so "speed>=0.37" and "speed>=0.42" are the same shape.
+// Only a DataSource returned by wrap() is observed; when the log is disabled wrap() returns the pool itself.
+public class QueryLog {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryLog.class);
+    private static final ThreadLocal<String> ORIGIN = new ThreadLocal<>();
+    private static final int MAX_SHAPES = 500;
+    private static final int MAX_ORIGINS_PER_SHAPE = 50;
+    private static final int RECENT_SLOW_QUERIES = 100;
+    private static final String OTHER = "(other)";
+
+    private final boolean enabled;
+    private volatile long thresholdNanos;
+    private final ConcurrentMap<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final ArrayDeque<Map<String, Object>> recentSlow = new ArrayDeque<>();
+
+    public QueryLog(boolean enabled, long thresholdMillis) {
+        this.enabled = enabled;
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    // What issued the statements on this thread, e.g. "ShipController.findAll?minSpeed&order=SPEED".
+    public static void setOrigin(String origin) {
+        ORIGIN.set(origin);
+    }
+
+    public static void clearOrigin() {
+        ORIGIN.remove();
+    }
+
+    // The task, tagged with the origin of the thread that submits it.
+    public static Runnable withOrigin(Runnable task) {
+        String origin = ORIGIN.get();
+        if (origin == null) {
+            return task;
+        }
+        return () -> {
+            ORIGIN.set(origin);
+            try {
+                task.run();
+            } finally {
+                ORIGIN.remove();
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public DataSource wrap(DataSource dataSource) {
+        return enabled ? new QueryLoggingDataSource(dataSource, this) : dataSource;
+    }
+
+    void record(String sql, Object[] binds, long rows, long nanos) {
+        String origin = ORIGIN.get();
+        shape(shapeOf(sql)).record(nanos, rows, origin);
+        if (nanos < thresholdNanos) {
+            return;
+        }
+        String bindValues = binds == null ? "[]" : Arrays.toString(binds);
+        LOG.warn("Slow query: {} ms, {} rows, origin {}: {} binds {}", nanos / 1_000_000, rows, origin, sql, bindValues);
+
+        Map<String, Object> slow = new LinkedHashMap<>();
+        slow.put("at", System.currentTimeMillis());
+        slow.put("millis", nanos / 1_000_000.0);
+        slow.put("rows", rows);
+        slow.put("origin", origin);
+        slow.put("sql", sql);
+        slow.put("binds", bindValues);
+        synchronized (recentSlow) {
+            if (recentSlow.size() == RECENT_SLOW_QUERIES) {
+                recentSlow.removeFirst();
+            }
+            recentSlow.addLast(slow);
+        }
+    }
+
+    public Map<String, Object> snapshot(int top) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("thresholdMillis", thresholdNanos / 1_000_000);
+        snapshot.put("shapes", shapes.size());
+        snapshot.put("slowest", top(Comparator.comparingLong((Shape shape) -> shape.maxNanos.get()), top));
+        snapshot.put("mostFrequent", top(Comparator.comparingLong((Shape shape) -> shape.count.sum()), top));
+        synchronized (recentSlow) {
+            List<Map<String, Object>> slow = new ArrayList<>(recentSlow);
+            snapshot.put("recentSlow", slow.subList(Math.max(0, slow.size() - top), slow.size()));
+        }
+        return snapshot;
+    }
+
+    private List<Map<String, Object>> top(Comparator<Shape> order, int top) {
+        return shapes.values().stream()
+                .sorted(order.reversed())
+                .limit(top)
+                .map(Shape::snapshot)
+                .collect(Collectors.toList());
+    }
+
+    static String shapeOf(String sql) {
+        StringBuilder shape = null;
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            int end = i;
+            if (c == '\'') {
+                end = i + 1;
+                while (end < length && (sql.charAt(end) != '\'' || end + 1 < length && sql.charAt(end + 1) == '\'')) {
+                    end += sql.charAt(end) == '\'' ? 2 : 1;
+                }
+                end = Math.min(end + 1, length);
+            } else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+                end = i + 1;
+                while (end < length && (Character.isDigit(sql.charAt(end)) || sql.charAt(end) == '.'
+                        || sql.charAt(end) == 'E' || sql.charAt(end) == 'e'
+                        || (sql.charAt(end) == '-' || sql.charAt(end) == '+') && (sql.charAt(end - 1) == 'E' || sql.charAt(end - 1) == 'e'))) {
+                    end++;
+                }
+            }
+            if (end == i) {
+                if (shape != null) {
+                    shape.append(c);
+                }
+                continue;
+            }
+            if (shape == null) {
+                shape = new StringBuilder(length).append(sql, 0, i);
+            }
+            shape.append('?');
+            i = end - 1;
+        }
+        return shape == null ? sql : shape.toString();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+    }
+
+    private Shape shape(String sql) {
+        Shape shape = shapes.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+        // SQL built with literals would otherwise grow the map without bound
+        return shapes.computeIfAbsent(shapes.size() < MAX_SHAPES ? sql : OTHER, Shape::new);
+    }
+
+    private static final class Shape {
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> origins = new ConcurrentHashMap<>();
+
+        Shape(String sql) {
+            this.sql = sql;
+        }
+
+        void record(long nanos, long rowCount, String origin) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            rows.add(Math.max(rowCount, 0));
+            String key = origin == null ? "-" : origin;
+            LongAdder originCount = origins.get(key);
+            if (originCount == null && origins.size() < MAX_ORIGINS_PER_SHAPE) {
+                originCount = origins.computeIfAbsent(key, ignored -> new LongAdder());
+            }
+            if (originCount != null) {
+                originCount.increment();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            long executions = count.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("sql", sql);
+            snapshot.put("count", executions);
+            snapshot.put("meanMicros", executions == 0 ? 0 : totalNanos.sum() / executions / 1_000);
+            snapshot.put("maxMicros", maxNanos.get() / 1_000);
+            snapshot.put("totalMillis", totalNanos.sum() / 1_000_000);
+            snapshot.put("rows", rows.sum());
+            Map<String, Long> byOrigin = new LinkedHashMap<>();
+            origins.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .limit(5)
+                    .forEach(entry -> byOrigin.put(entry.getKey(), entry.getValue().sum()));
+            snapshot.put("origins", byOrigin);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.space.diagnostics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+// Proxies connections, statements and result sets of the pool so that QueryLog sees every execution.
+// A query is timed across executeQuery and every ResultSet.next(), and recorded when its ResultSet closes.
+class QueryLoggingDataSource extends DelegatingDataSource implements AutoCloseable {
+    private final QueryLog queryLog;
+
+    QueryLoggingDataSource(DataSource target, QueryLog queryLog) {
+        super(target);
+        this.queryLog = queryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) getTargetDataSource()).close();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(QueryLoggingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    // Proxies are compared by identity: Hibernate keeps statements and result sets in hash maps.
+    private abstract static class Handler implements InvocationHandler {
+        final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return target.toString();
+                default:
+                    return handle(method, args);
+            }
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    private final class ConnectionHandler extends Handler {
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = call(method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler(result, (String) args[0]));
+                case "prepareCall":
+                    return proxy(CallableStatement.class, new StatementHandler(result, (String) args[0]));
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(result, null));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private final class StatementHandler extends Handler {
+        private final String preparedSql;
+        private Object[] binds = new Object[8];
+        private int bindCount;
+        private ResultSetHandler openResultSet;
+
+        StatementHandler(Object target, String preparedSql) {
+            super(target);
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                return call(method, args);
+            }
+            switch (name) {
+                case "clearParameters":
+                    bindCount = 0;
+                    return call(method, args);
+                case "executeQuery": {
+                    String sql = sql(args);
+                    long start = System.nanoTime();
+                    ResultSet resultSet = (ResultSet) call(method, args);
+                    openResultSet = new ResultSetHandler(resultSet, sql, bindsSnapshot(), System.nanoTime() - start);
+                    return proxy(ResultSet.class, openResultSet);
+                }
+                case "executeUpdate":
+                case "executeLargeUpdate": {
+                    long start = System.nanoTime();
+                    Object rows = call(method, args);
+                    queryLog.record(sql(args), bindsSnapshot(), ((Number) rows).longValue(), System.nanoTime() - start);
+                    return rows;
+                }
+                case "execute": {
+                    long start = System.nanoTime();
+                    Object hasResultSet = call(method, args);
+                    long rows = (Boolean) hasResultSet ? -1 : ((Statement) target).getUpdateCount();
+                    queryLog.record(sql(args), bindsSnapshot(), rows, System.nanoTime() - start);
+                    return hasResultSet;
+                }
+                case "executeBatch":
+                case "executeLargeBatch": {
+                    long start = System.nanoTime();
+                    Object counts = call(method, args);
+                    long rows = 0;
+                    if (counts instanceof int[]) {
+                        for (int count : (int[]) counts) {
+                            rows += Math.max(count, 0);
+                        }
+                    } else {
+                        for (long count : (long[]) counts) {
+                            rows += Math.max(count, 0);
+                        }
+                    }
+                    queryLog.record(sql(null), bindsSnapshot(), rows, System.nanoTime() - start);
+                    return counts;
+                }
+                case "close":
+                    if (openResultSet != null) {
+                        openResultSet.finish();
+                    }
+                    return call(method, args);
+                default:
+                    return call(method, args);
+            }
+        }
+
+        private String sql(Object[] args) {
+            return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : String.valueOf(preparedSql);
+        }
+
+        private void bind(int index, Object value) {
+            if (index > binds.length) {
+                binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+            }
+            binds[index - 1] = value;
+            bindCount = Math.max(bindCount, index);
+        }
+
+        private Object[] bindsSnapshot() {
+            return bindCount == 0 ? null : Arrays.copyOf(binds, bindCount);
+        }
+    }
+
+    private final class ResultSetHandler extends Handler {
+        private final String sql;
+        private final Object[] binds;
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(Object target, String sql, Object[] binds, long executeNanos) {
+            super(target);
+            this.sql = sql;
+            this.binds = binds;
+            this.nanos = executeNanos;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    long start = System.nanoTime();
+                    Object hasRow = call(method, args);
+                    nanos += System.nanoTime() - start;
+                    if ((Boolean) hasRow) {
+                        rows++;
+                    }
+                    return hasRow;
+                }
+                case "close":
+                    finish();
+                    return call(method, args);
+                default:
+                    return call(method, args);
+            }
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                queryLog.record(sql, binds, rows, nanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.space.exeptions400and404;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// a write that must name the version it replaces came without If-Match
+@ResponseStatus(code = HttpStatus.PRECONDITION_REQUIRED)
+public class PreconditionRequiredException extends RuntimeException {
+}
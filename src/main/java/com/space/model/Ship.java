@@ -1,11 +1,16 @@
 package com.space.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.*;
 import java.util.Date;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ship")
 @Transactional
 //@Table(name = "ship")
 public class Ship {
@@ -32,6 +37,11 @@ public class Ship {
 
     private Double rating;
 
+    // travels in the ETag header, not in the body
+    @Version
+    @JsonIgnore
+    private long version;
+
     public long getId() {  return id; }
 
     public void setId(long id) { this.id = id; }
@@ -93,6 +103,14 @@ public class Ship {
     public void setRating(Double rating) {
         this.rating = rating;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 /*
     @Override
     public String toString() {
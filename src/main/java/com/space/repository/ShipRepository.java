@@ -1,9 +1,31 @@
 package com.space.repository;
 
-
 import com.space.model.Ship;
-        import org.springframework.data.jpa.repository.JpaRepository;
-        import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Optional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
+public interface ShipRepository extends JpaRepository<Ship, Long>, JpaSpecificationExecutor<Ship>, ShipRepositoryCustom {
+    // filtered pages and counts go to the query cache when hibernate.cache.use_query_cache is on
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Page<Ship> findAll(Specification<Ship> specification, Pageable pageable);
+
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    long count(Specification<Ship> specification);
 
-public interface ShipRepository extends JpaRepository<Ship, Long>, JpaSpecificationExecutor<Ship> {
-}
\ No newline at end of file
+    // SELECT ... FOR UPDATE, past the second-level cache; the row stays as read until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Ship> findLockedById(Long id);
+}
@@ -0,0 +1,39 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface ShipRepositoryCustom {
+    // LIMIT without OFFSET and without the count query a Page would issue
+    List<Ship> findAll(Specification<Ship> specification, Sort sort, int limit);
+
+    // the content of one page, also without the count query
+    List<Ship> findPage(Specification<Ship> specification, Pageable pageable);
+
+    // one row per (shipType, planet, production year, isUsed) among the matching ships: those four, the row count,
+    // then min, max, sum and non-null count of speed, crewSize and rating, all from a single GROUP BY
+    List<Object[]> findFacetGroups(Specification<Ship> specification);
+
+    // plain JDBC batches on the transaction's connection; IDENTITY keeps Hibernate from batching, JDBC can.
+    // Generated ids are written back into the ships.
+    void insertAll(List<Ship> ships, int batchSize);
+
+    // the next `limit` ids matching the specification after `afterId`, in id order and locked until commit
+    List<Long> findIdsAfter(Specification<Ship> specification, long afterId, int limit);
+
+    // one UPDATE for the non-null fields of `changes`; rating is recomputed in SQL when speed, isUsed or prodDate change
+    int updateByIds(List<Long> ids, Ship changes);
+
+    // the same single UPDATE for one ship; with `expectedVersion` it only matches that version
+    int updateById(long id, Long expectedVersion, Ship changes);
+
+    int deleteByIds(List<Long> ids);
+
+    // forward-only cursor; each ship is detached once the consumer returns, so the session stays empty
+    void forEach(Specification<Ship> specification, Sort sort, int fetchSize, Consumer<Ship> consumer);
+}
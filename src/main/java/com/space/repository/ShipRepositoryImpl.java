@@ -0,0 +1,258 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.action.internal.BulkOperationCleanupAction;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.Queryable;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class ShipRepositoryImpl implements ShipRepositoryCustom {
+    private static final String INSERT_SHIP = "INSERT INTO ship(name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // the same HALF_UP rounding as ShipRating.rating: the double is converted to DECIMAL through its
+    // shortest decimal form, as BigDecimal.valueOf does; ROUND(double, 2) differs for values like 1.025.
+    // 80E0 keeps H2 from typing a bound speed as INT.
+    private static final String RATING = "CAST(80E0 * %s * CASE WHEN %s THEN 0.5E0 ELSE 1E0 END / (3020 - YEAR(%s)) AS DECIMAL(10, 2))";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Ship> findAll(Specification<Ship> specification, Sort sort, int limit) {
+        return select(specification, sort).setMaxResults(limit).setHint(HINT_CACHEABLE, true).getResultList();
+    }
+
+    @Override
+    public List<Ship> findPage(Specification<Ship> specification, Pageable pageable) {
+        return select(specification, pageable.getSort())
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize())
+                .setHint(HINT_CACHEABLE, true)
+                .getResultList();
+    }
+
+    private TypedQuery<Ship> select(Specification<Ship> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(toOrders(sort, root, criteriaBuilder));
+
+        return entityManager.createQuery(query);
+    }
+
+    @Override
+    public List<Object[]> findFacetGroups(Specification<Ship> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+        Root<Ship> root = query.from(Ship.class);
+
+        List<Expression<?>> groups = Arrays.asList(root.get("shipType"), root.get("planet"),
+                criteriaBuilder.function("YEAR", Integer.class, root.get("prodDate")), root.get("isUsed"));
+        List<Selection<?>> columns = new ArrayList<>(groups);
+        columns.add(criteriaBuilder.count(root));
+        for (String field : new String[]{"speed", "crewSize", "rating"}) {
+            Path<Number> value = root.get(field);
+            columns.add(criteriaBuilder.min(value));
+            columns.add(criteriaBuilder.max(value));
+            columns.add(criteriaBuilder.sum(value));
+            columns.add(criteriaBuilder.count(value));
+        }
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.multiselect(columns).groupBy(groups);
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public void insertAll(List<Ship> ships, int batchSize) {
+        if (ships.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        // the batch bypasses Hibernate, so mark the ship table as changing the way a bulk statement does: cached
+        // queries over it are invalidated now and again at commit, and ones read in between are not cached
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        session.getActionQueue().addAction(new BulkOperationCleanupAction(session,
+                (Queryable) session.getFactory().getMetamodel().entityPersister(Ship.class)));
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SHIP, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < ships.size(); from += batchSize) {
+                    List<Ship> chunk = ships.subList(from, Math.min(ships.size(), from + batchSize));
+                    for (Ship ship : chunk) {
+                        statement.setString(1, ship.getName());
+                        statement.setString(2, ship.getPlanet());
+                        statement.setString(3, ship.getShipType().name());
+                        statement.setDate(4, new java.sql.Date(ship.getProdDate().getTime()));
+                        statement.setBoolean(5, ship.getUsed());
+                        statement.setDouble(6, ship.getSpeed());
+                        statement.setInt(7, ship.getCrewSize());
+                        statement.setDouble(8, ship.getRating());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Ship ship : chunk) {
+                            keys.next();
+                            ship.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<Long> findIdsAfter(Specification<Ship> specification, long afterId, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Ship> root = query.from(Ship.class);
+        Path<Long> id = root.get("id");
+
+        Predicate after = criteriaBuilder.greaterThan(id, afterId);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        query.select(id).where(predicate == null ? after : criteriaBuilder.and(predicate, after)).orderBy(criteriaBuilder.asc(id));
+
+        return entityManager.createQuery(query).setMaxResults(limit).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+    }
+
+    @Override
+    public int updateByIds(List<Long> ids, Ship changes) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Query query = createUpdate(changes, "id IN (:ids)");
+        return query == null ? 0 : query.setParameter("ids", ids).executeUpdate();
+    }
+
+    @Override
+    public int updateById(long id, Long expectedVersion, Ship changes) {
+        Query query = createUpdate(changes, expectedVersion == null ? "id = :id" : "id = :id AND version = :expectedVersion");
+        if (query == null) {
+            return 0;
+        }
+        if (expectedVersion != null) {
+            query.setParameter("expectedVersion", expectedVersion);
+        }
+        return query.setParameter("id", id).executeUpdate();
+    }
+
+    // null when `changes` has nothing to set
+    private Query createUpdate(Ship changes, String where) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        putIfPresent(parameters, "name", changes.getName());
+        putIfPresent(parameters, "planet", changes.getPlanet());
+        putIfPresent(parameters, "shipType", changes.getShipType() == null ? null : changes.getShipType().name());
+        putIfPresent(parameters, "prodDate", changes.getProdDate() == null ? null : new java.sql.Date(changes.getProdDate().getTime()));
+        putIfPresent(parameters, "isUsed", changes.getUsed());
+        putIfPresent(parameters, "speed", changes.getSpeed());
+        putIfPresent(parameters, "crewSize", changes.getCrewSize());
+        if (parameters.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE ship SET ");
+        for (String column : parameters.keySet()) {
+            sql.append(column).append(" = :").append(column).append(", ");
+        }
+        if (parameters.containsKey("speed") || parameters.containsKey("isUsed") || parameters.containsKey("prodDate")) {
+            // changed inputs are read from the parameters: MySQL would otherwise see the new values and H2 the old ones
+            sql.append("rating = ").append(String.format(RATING, valueOf(parameters, "speed"),
+                    valueOf(parameters, "isUsed"), valueOf(parameters, "prodDate"))).append(", ");
+        }
+        sql.append("version = version + 1 WHERE ").append(where);
+
+        // only the ship region is invalidated, not every region Hibernate knows
+        Query query = entityManager.createNativeQuery(sql.toString())
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Ship.class);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    @Override
+    public int deleteByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery("DELETE FROM Ship s WHERE s.id IN (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    @Override
+    public void forEach(Specification<Ship> specification, Sort sort, int fetchSize, Consumer<Ship> consumer) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(toOrders(sort, root, criteriaBuilder));
+
+        Session session = entityManager.unwrap(Session.class);
+        org.hibernate.query.Query<?> scroll = entityManager.createQuery(query).unwrap(org.hibernate.query.Query.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE);
+        try (ScrollableResults results = scroll.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                Ship ship = (Ship) results.get(0);
+                consumer.accept(ship);
+                session.evict(ship);
+            }
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> parameters, String column, Object value) {
+        if (value != null) {
+            parameters.put(column, value);
+        }
+    }
+
+    private static String valueOf(Map<String, Object> parameters, String column) {
+        return parameters.containsKey(column) ? ":" + column : column;
+    }
+}
@@ -0,0 +1,30 @@
+package com.space.service;
+
+import com.space.model.Ship;
+
+// Outcome of one element of POST /rest/ships/batch: the created ship, or 400 when it failed validation.
+public class ShipBatchResult {
+    private final int index;
+    private final int status;
+    private final Ship ship;
+
+    private ShipBatchResult(int index, int status, Ship ship) {
+        this.index = index;
+        this.status = status;
+        this.ship = ship;
+    }
+
+    public static ShipBatchResult created(int index, Ship ship) {
+        return new ShipBatchResult(index, 200, ship);
+    }
+
+    public static ShipBatchResult rejected(int index) {
+        return new ShipBatchResult(index, 400, null);
+    }
+
+    public int getIndex() { return index; }
+
+    public int getStatus() { return status; }
+
+    public Ship getShip() { return ship; }
+}
@@ -0,0 +1,16 @@
+package com.space.service;
+
+// Outcome of PATCH/DELETE /rest/ships by filter: rows changed and the number of chunk transactions used.
+public class ShipBulkResult {
+    private final long affected;
+    private final int chunks;
+
+    public ShipBulkResult(long affected, int chunks) {
+        this.affected = affected;
+        this.chunks = chunks;
+    }
+
+    public long getAffected() { return affected; }
+
+    public int getChunks() { return chunks; }
+}
@@ -0,0 +1,35 @@
+package com.space.service;
+
+import com.space.diagnostics.CacheMetrics;
+import com.space.model.Ship;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManagerFactory;
+
+// Hibernate keeps the ship region current for writes made through the EntityManager, and invalidates the cached
+// queries over the ship table for them, native statements and JDBC batches included. This covers the rest: rows
+// changed by scripts or bulk statements, which announce themselves with a RELOADED event.
+@Component
+public class ShipCacheEvictor {
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    CacheMetrics cacheMetrics;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipChange(ShipChangeEvent event) {
+        if (event.getType() != ShipChangeEvent.Type.RELOADED) {
+            return;
+        }
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Ship.class);
+        // every cached query reads the ship table, and they all live in the default region
+        cache.evictDefaultQueryRegion();
+        cacheMetrics.recordEviction();
+    }
+}
@@ -0,0 +1,107 @@
+package com.space.service;
+
+import com.space.model.Ship;
+
+// Published by ShipServiceImpl for every write. Listeners are meant to run after the transaction commits,
+// so the snapshots are detached copies: `ship` is the row as written, `previous` the row it replaced.
+// MODIFIED is a single-row UPDATE whose result was not read back: `ship` holds only the fields that were set,
+// `previous` the row as it was locked before the UPDATE, and `current` the two put together.
+// RELOADED means the table changed outside the service (scripts, bulk statements) and derived state must be rebuilt.
+public final class ShipChangeEvent {
+    public enum Type { CREATED, UPDATED, MODIFIED, DELETED, RELOADED }
+
+    private final Type type;
+    private final Long shipId;
+    private final Ship ship;
+    private final Ship previous;
+    private final Ship current;
+
+    private ShipChangeEvent(Type type, Long shipId, Ship ship, Ship previous) {
+        this.type = type;
+        this.shipId = shipId;
+        this.ship = ship;
+        this.previous = previous;
+        this.current = type == Type.MODIFIED ? merge(copyOf(previous), ship) : ship;
+    }
+
+    public static ShipChangeEvent created(Ship ship) {
+        return new ShipChangeEvent(Type.CREATED, ship.getId(), copyOf(ship), null);
+    }
+
+    public static ShipChangeEvent updated(Ship previous, Ship ship) {
+        return new ShipChangeEvent(Type.UPDATED, ship.getId(), copyOf(ship), previous);
+    }
+
+    // the partial copy names the patched ship and its new version, not whatever the request body held
+    public static ShipChangeEvent modified(Ship previous, Ship changes) {
+        Ship copy = copyOf(changes);
+        copy.setId(previous.getId());
+        copy.setVersion(previous.getVersion() + 1);
+        return new ShipChangeEvent(Type.MODIFIED, previous.getId(), copy, copyOf(previous));
+    }
+
+    public static ShipChangeEvent deleted(Ship previous) {
+        return new ShipChangeEvent(Type.DELETED, previous.getId(), null, copyOf(previous));
+    }
+
+    public static ShipChangeEvent reloaded() {
+        return new ShipChangeEvent(Type.RELOADED, null, null, null);
+    }
+
+    public static Ship copyOf(Ship ship) {
+        Ship copy = new Ship();
+        copy.setId(ship.getId());
+        copy.setName(ship.getName());
+        copy.setPlanet(ship.getPlanet());
+        copy.setShipType(ship.getShipType());
+        copy.setProdDate(ship.getProdDate());
+        copy.setUsed(ship.getUsed());
+        copy.setSpeed(ship.getSpeed());
+        copy.setCrewSize(ship.getCrewSize());
+        copy.setRating(ship.getRating());
+        copy.setVersion(ship.getVersion());
+        return copy;
+    }
+
+    // The fields a PATCH set over the previous row; the rating is recomputed by the same rule the UPDATE applied in SQL.
+    private static Ship merge(Ship ship, Ship changes) {
+        if (changes.getName() != null) {
+            ship.setName(changes.getName());
+        }
+        if (changes.getPlanet() != null) {
+            ship.setPlanet(changes.getPlanet());
+        }
+        if (changes.getShipType() != null) {
+            ship.setShipType(changes.getShipType());
+        }
+        if (changes.getProdDate() != null) {
+            ship.setProdDate(changes.getProdDate());
+        }
+        if (changes.getUsed() != null) {
+            ship.setUsed(changes.getUsed());
+        }
+        if (changes.getSpeed() != null) {
+            ship.setSpeed(changes.getSpeed());
+        }
+        if (changes.getCrewSize() != null) {
+            ship.setCrewSize(changes.getCrewSize());
+        }
+        if ((changes.getSpeed() != null || changes.getUsed() != null || changes.getProdDate() != null)
+                && ship.getSpeed() != null && ship.getUsed() != null && ship.getProdDate() != null) {
+            ship.setRating(ShipRating.rating(ship.getSpeed(), ship.getUsed(), ShipRating.yearOf(ship.getProdDate().getTime())));
+        }
+        ship.setVersion(ship.getVersion() + 1);
+        return ship;
+    }
+
+    public Type getType() { return type; }
+
+    public Long getShipId() { return shipId; }
+
+    public Ship getShip() { return ship; }
+
+    public Ship getPrevious() { return previous; }
+
+    // the row after the change: `ship` for CREATED and UPDATED, the merged row for MODIFIED, null otherwise
+    public Ship getCurrent() { return current; }
+}
@@ -0,0 +1,112 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The most recent committed changes, numbered. A ring: the oldest entries are overwritten, so a writer never waits
+// for a reader, and a reader that fell further behind than the ring finds out it missed changes.
+// Numbering starts from the startup time in microseconds, so sequences keep growing across restarts.
+@Component
+public class ShipChangeFeed {
+    private final ShipChange[] ring;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private long last = System.currentTimeMillis() * 1000;
+    // the sequence the numbering started from; nothing before it is known
+    private final long first = last;
+
+    public ShipChangeFeed(@Value("${ships.changes.bufferSize:1024}") int capacity) {
+        ring = new ShipChange[capacity];
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipChange(ShipChangeEvent event) {
+        append(event);
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private synchronized void append(ShipChangeEvent event) {
+        last++;
+        ring[(int) (last % ring.length)] = new ShipChange(last, event);
+    }
+
+    public synchronized long getLastSequence() {
+        return last;
+    }
+
+    // Changes after the given sequence, at most max of them; null when some were already overwritten.
+    public synchronized List<ShipChange> readAfter(long sequence, int max) {
+        if (sequence > last || sequence < first || sequence < last - ring.length) {
+            return null;
+        }
+        if (sequence == last) {
+            return Collections.emptyList();
+        }
+        List<ShipChange> changes = new ArrayList<>((int) Math.min(max, last - sequence));
+        for (long next = sequence + 1; next <= last && changes.size() < max; next++) {
+            changes.add(ring[(int) (next % ring.length)]);
+        }
+        return changes;
+    }
+
+    // Called on the writing thread after every change, so it has to return quickly.
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // One entry of the feed as clients see it. MODIFIED becomes an update whose ship holds only the fields that
+    // were set (partial), a delete carries the ship as it was, and "reload" tells clients to fetch everything again.
+    public static final class ShipChange {
+        private final long sequence;
+        private final String type;
+        private final Long id;
+        private final Ship ship;
+        private final boolean partial;
+
+        private ShipChange(long sequence, ShipChangeEvent event) {
+            this.sequence = sequence;
+            this.id = event.getShipId();
+            this.partial = event.getType() == ShipChangeEvent.Type.MODIFIED;
+            switch (event.getType()) {
+                case CREATED:
+                    type = "create";
+                    ship = event.getShip();
+                    break;
+                case UPDATED:
+                case MODIFIED:
+                    type = "update";
+                    ship = event.getShip();
+                    break;
+                case DELETED:
+                    type = "delete";
+                    ship = event.getPrevious();
+                    break;
+                default:
+                    type = "reload";
+                    ship = null;
+            }
+        }
+
+        public long getSequence() { return sequence; }
+
+        public String getType() { return type; }
+
+        public Long getId() { return id; }
+
+        public Ship getShip() { return ship; }
+
+        public boolean isPartial() { return partial; }
+    }
+}
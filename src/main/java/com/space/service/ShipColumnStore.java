@@ -0,0 +1,619 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Optional read engine: ship rows mirrored into primitive column arrays and answered without Hibernate.
+// Filters are evaluated by fork/join scans into a row bitmap; each sortable field keeps a permutation of
+// live rows in (field, id) order, so a page is a walk over that permutation. Comparison semantics follow
+// the Specification factories in ShipServiceImpl, including LIKE patterns and DATE-vs-timestamp bounds.
+// While disabled, changes only mark the store stale instead of being applied, so nothing grows with the writes.
+// Deleted rows stay behind as dead rows until the next load, which a growing share of them brings forward.
+public class ShipColumnStore {
+    private static final int SCAN_CHUNK_ROWS = 1 << 14;
+    // a reload is due once this many rows, and at least half of them, are dead
+    private static final int MIN_DEAD_ROWS = 1024;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final byte NULL_BYTE = -1;
+    private static final String[] SORT_FIELDS = {"id", "speed", "prodDate", "rating"};
+    private static final ShipType[] SHIP_TYPES = ShipType.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean ignoreCase;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong requestedGeneration = new AtomicLong(1);
+    private volatile long loadedGeneration;
+
+    private int size;
+    private int deadRows;
+    private long[] ids = new long[0];
+    private int[] nameCodes = new int[0];
+    private int[] planetCodes = new int[0];
+    private byte[] shipTypes = new byte[0];
+    private int[] prodDays = new int[0];
+    private byte[] used = new byte[0];
+    private double[] speeds = new double[0];
+    private int[] crewSizes = new int[0];
+    private double[] ratings = new double[0];
+    private boolean[] live = new boolean[0];
+    private final Map<Long, Integer> rowsById = new HashMap<>();
+    private final Dictionary names = new Dictionary();
+    private final Dictionary planets = new Dictionary();
+    private final Map<String, Permutation> permutations = new LinkedHashMap<>();
+
+    public ShipColumnStore(DataSource dataSource, boolean enabled, boolean ignoreCase) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.enabled = enabled;
+        this.ignoreCase = ignoreCase;
+        for (String field : SORT_FIELDS) {
+            permutations.put(field, new Permutation(field));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int count(ShipFilter filter) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return cardinality(scan(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Page<Ship> findPage(ShipFilter filter, Pageable pageable) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long[] matches = scan(filter);
+            Permutation permutation = permutationFor(pageable.getSort());
+            List<Ship> content = new ArrayList<>(pageable.getPageSize());
+            long skip = pageable.getOffset();
+            for (int i = 0; i < permutation.size && content.size() < pageable.getPageSize(); i++) {
+                int row = permutation.rows[i];
+                if (isSet(matches, row) && skip-- <= 0) {
+                    content.add(toShip(row));
+                }
+            }
+            return new PageImpl<>(content, pageable, cardinality(matches));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Ship> findAfter(ShipFilter filter, Sort sort, ShipCursor cursor, int limit) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long[] matches = scan(filter);
+            Permutation permutation = permutationFor(sort);
+            List<Ship> content = new ArrayList<>(limit);
+            for (int i = cursor == null ? 0 : permutation.firstAfter(cursor); i < permutation.size && content.size() < limit; i++) {
+                int row = permutation.rows[i];
+                if (isSet(matches, row)) {
+                    content.add(toShip(row));
+                }
+            }
+            return content;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public ShipFacets facets(ShipFilter filter) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long[] matches = scan(filter);
+            ShipFacets facets = new ShipFacets();
+            for (int row = 0; row < size; row++) {
+                if (isSet(matches, row)) {
+                    facets.addShip(shipTypes[row] == NULL_BYTE ? null : SHIP_TYPES[shipTypes[row]],
+                            planets.decode(planetCodes[row]),
+                            prodDays[row] == NULL_INT ? null : LocalDate.ofEpochDay(prodDays[row]).getYear(),
+                            used[row] == NULL_BYTE ? null : used[row] == 1,
+                            Double.isNaN(speeds[row]) ? null : speeds[row],
+                            crewSizes[row] == NULL_INT ? null : crewSizes[row],
+                            Double.isNaN(ratings[row]) ? null : ratings[row]);
+                }
+            }
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipChange(ShipChangeEvent event) {
+        if (!enabled || event.getType() == ShipChangeEvent.Type.RELOADED) {
+            requestedGeneration.incrementAndGet();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer row = rowsById.get(event.getShipId());
+            Ship ship = event.getCurrent();
+            if (row != null) {
+                for (Permutation permutation : permutations.values()) {
+                    permutation.remove(row);
+                }
+            }
+            if (ship == null) {
+                if (row != null) {
+                    live[row] = false;
+                    rowsById.remove(event.getShipId());
+                    if (++deadRows >= MIN_DEAD_ROWS && deadRows * 2 >= size && loadedGeneration == requestedGeneration.get()) {
+                        requestedGeneration.incrementAndGet();
+                    }
+                }
+                return;
+            }
+            if (row == null) {
+                row = appendRow();
+                rowsById.put(ship.getId(), row);
+            }
+            writeRow(row, ship.getId(), ship.getName(), ship.getPlanet(), ship.getShipType(),
+                    ship.getProdDate() == null ? null : toLocalDate(ship.getProdDate().getTime()),
+                    ship.getUsed(), ship.getSpeed(), ship.getCrewSize(), ship.getRating());
+            for (Permutation permutation : permutations.values()) {
+                permutation.insert(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loadedGeneration == requestedGeneration.get()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long generation = requestedGeneration.get();
+            if (loadedGeneration == generation) {
+                return;
+            }
+            size = 0;
+            deadRows = 0;
+            rowsById.clear();
+            names.clear();
+            planets.clear();
+            jdbcTemplate.query("SELECT id, name, planet, shipType, prodDate, isUsed, speed, crewSize, rating FROM ship", resultSet -> {
+                int row = appendRow();
+                long id = resultSet.getLong(1);
+                java.sql.Date prodDate = resultSet.getDate(5);
+                String shipType = resultSet.getString(4);
+                writeRow(row, id, resultSet.getString(2), resultSet.getString(3),
+                        shipType == null ? null : ShipType.valueOf(shipType),
+                        prodDate == null ? null : prodDate.toLocalDate(),
+                        getBoolean(resultSet, 6), getDouble(resultSet, 7), getInt(resultSet, 8), getDouble(resultSet, 9));
+                rowsById.put(id, row);
+            });
+            for (Permutation permutation : permutations.values()) {
+                permutation.rebuild();
+            }
+            loadedGeneration = generation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int appendRow() {
+        if (size == ids.length) {
+            int capacity = Math.max(16, size * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            planetCodes = Arrays.copyOf(planetCodes, capacity);
+            shipTypes = Arrays.copyOf(shipTypes, capacity);
+            prodDays = Arrays.copyOf(prodDays, capacity);
+            used = Arrays.copyOf(used, capacity);
+            speeds = Arrays.copyOf(speeds, capacity);
+            crewSizes = Arrays.copyOf(crewSizes, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            live = Arrays.copyOf(live, capacity);
+        }
+        return size++;
+    }
+
+    private void writeRow(int row, long id, String name, String planet, ShipType shipType, LocalDate prodDate,
+                          Boolean isUsed, Double speed, Integer crewSize, Double rating) {
+        ids[row] = id;
+        nameCodes[row] = names.encode(name);
+        planetCodes[row] = planets.encode(planet);
+        shipTypes[row] = shipType == null ? NULL_BYTE : (byte) shipType.ordinal();
+        prodDays[row] = prodDate == null ? NULL_INT : (int) prodDate.toEpochDay();
+        used[row] = isUsed == null ? NULL_BYTE : (byte) (isUsed ? 1 : 0);
+        speeds[row] = speed == null ? Double.NaN : speed;
+        crewSizes[row] = crewSize == null ? NULL_INT : crewSize;
+        ratings[row] = rating == null ? Double.NaN : rating;
+        live[row] = true;
+    }
+
+    private Ship toShip(int row) {
+        Ship ship = new Ship();
+        ship.setId(ids[row]);
+        ship.setName(names.decode(nameCodes[row]));
+        ship.setPlanet(planets.decode(planetCodes[row]));
+        ship.setShipType(shipTypes[row] == NULL_BYTE ? null : SHIP_TYPES[shipTypes[row]]);
+        ship.setProdDate(prodDays[row] == NULL_INT ? null : new Date(startOfDay(prodDays[row])));
+        ship.setUsed(used[row] == NULL_BYTE ? null : used[row] == 1);
+        ship.setSpeed(Double.isNaN(speeds[row]) ? null : speeds[row]);
+        ship.setCrewSize(crewSizes[row] == NULL_INT ? null : crewSizes[row]);
+        ship.setRating(Double.isNaN(ratings[row]) ? null : ratings[row]);
+        return ship;
+    }
+
+    private Permutation permutationFor(Sort sort) {
+        String field = sort.isSorted() ? sort.iterator().next().getProperty() : "id";
+        Permutation permutation = permutations.get(field);
+        if (permutation == null) {
+            throw new IllegalArgumentException("Unsupported sort field " + field);
+        }
+        return permutation;
+    }
+
+    // one bit per row, set when the row is live and passes every filter
+    private long[] scan(ShipFilter filter) {
+        long[] matches = new long[(size + 63) >>> 6];
+        ForkJoinPool.commonPool().invoke(new Scan(new Criteria(filter), matches, 0, size));
+        return matches;
+    }
+
+    private static boolean isSet(long[] bits, int row) {
+        return (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private LocalDate toLocalDate(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+    }
+
+    private long startOfDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private final class Scan extends RecursiveAction {
+        private final Criteria criteria;
+        private final long[] matches;
+        private final int from;
+        private final int to;
+
+        private Scan(Criteria criteria, long[] matches, int from, int to) {
+            this.criteria = criteria;
+            this.matches = matches;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SCAN_CHUNK_ROWS) {
+                // split on a word boundary so the halves never write to the same long
+                int middle = ((from + to) >>> 1) & ~63;
+                invokeAll(new Scan(criteria, matches, from, middle), new Scan(criteria, matches, middle, to));
+                return;
+            }
+            for (int row = from; row < to; row++) {
+                if (criteria.matches(row)) {
+                    matches[row >>> 6] |= 1L << row;
+                }
+            }
+        }
+    }
+
+    // A ShipFilter compiled against the current columns: LIKE is evaluated once per dictionary entry
+    // and date bounds are converted to epoch days.
+    private final class Criteria {
+        private final boolean[] nameMatches;
+        private final boolean[] planetMatches;
+        private final byte shipType;
+        private final int minDay;
+        private final int maxDay;
+        private final byte isUsed;
+        private final double minSpeed;
+        private final double maxSpeed;
+        private final int minCrewSize;
+        private final int maxCrewSize;
+        private final double minRating;
+        private final double maxRating;
+
+        private Criteria(ShipFilter filter) {
+            nameMatches = filter.getName() == null ? null : names.matching(like(filter.getName()));
+            planetMatches = filter.getPlanet() == null ? null : planets.matching(like(filter.getPlanet()));
+            shipType = filter.getShipType() == null ? NULL_BYTE : (byte) filter.getShipType().ordinal();
+            isUsed = filter.getUsed() == null ? NULL_BYTE : (byte) (filter.getUsed() ? 1 : 0);
+
+            Long after = filter.getAfter();
+            Long before = filter.getBefore();
+            if (after != null && before != null) {
+                before = ShipServiceImpl.prodDateUpperBound(before).getTime();
+            }
+            minDay = after == null ? NULL_INT : firstDayStartingAtOrAfter(after);
+            maxDay = before == null ? Integer.MAX_VALUE : (int) toLocalDate(before).toEpochDay();
+
+            minSpeed = filter.getMinSpeed() == null ? Double.NEGATIVE_INFINITY : filter.getMinSpeed();
+            maxSpeed = filter.getMaxSpeed() == null ? Double.POSITIVE_INFINITY : filter.getMaxSpeed();
+            minCrewSize = filter.getMinCrewSize() == null ? NULL_INT : filter.getMinCrewSize();
+            maxCrewSize = filter.getMaxCrewSize() == null ? Integer.MAX_VALUE : filter.getMaxCrewSize();
+            minRating = filter.getMinRating() == null ? Double.NEGATIVE_INFINITY : filter.getMinRating();
+            maxRating = filter.getMaxRating() == null ? Double.POSITIVE_INFINITY : filter.getMaxRating();
+        }
+
+        // NULL columns never satisfy a comparison, as in SQL: NaN fails every double test,
+        // and NULL_INT is excluded explicitly because it is also the "no lower bound" value.
+        boolean matches(int row) {
+            if (!live[row]) {
+                return false;
+            }
+            if (nameMatches != null && (nameCodes[row] < 0 || !nameMatches[nameCodes[row]])) {
+                return false;
+            }
+            if (planetMatches != null && (planetCodes[row] < 0 || !planetMatches[planetCodes[row]])) {
+                return false;
+            }
+            if (shipType != NULL_BYTE && shipTypes[row] != shipType) {
+                return false;
+            }
+            if ((minDay != NULL_INT || maxDay != Integer.MAX_VALUE)
+                    && (prodDays[row] == NULL_INT || prodDays[row] < minDay || prodDays[row] > maxDay)) {
+                return false;
+            }
+            if (isUsed != NULL_BYTE && used[row] != isUsed) {
+                return false;
+            }
+            double speed = speeds[row];
+            if ((minSpeed != Double.NEGATIVE_INFINITY || maxSpeed != Double.POSITIVE_INFINITY)
+                    && !(speed >= minSpeed && speed <= maxSpeed)) {
+                return false;
+            }
+            if ((minCrewSize != NULL_INT || maxCrewSize != Integer.MAX_VALUE)
+                    && (crewSizes[row] == NULL_INT || crewSizes[row] < minCrewSize || crewSizes[row] > maxCrewSize)) {
+                return false;
+            }
+            double rating = ratings[row];
+            return (minRating == Double.NEGATIVE_INFINITY && maxRating == Double.POSITIVE_INFINITY)
+                    || (rating >= minRating && rating <= maxRating);
+        }
+
+        // the DATE column is compared with a timestamp, i.e. at the start of its day
+        private int firstDayStartingAtOrAfter(long millis) {
+            LocalDate day = toLocalDate(millis);
+            if (day.atStartOfDay(zone).toInstant().toEpochMilli() < millis) {
+                day = day.plusDays(1);
+            }
+            return (int) day.toEpochDay();
+        }
+    }
+
+    // '%' + term + '%' with the term's own '%', '_' and '\' escapes honoured, as LIKE does
+    private Pattern like(String term) {
+        StringBuilder regex = new StringBuilder(".*");
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == '\\' && i + 1 < term.length()) {
+                regex.append(Pattern.quote(String.valueOf(term.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        regex.append(".*");
+        int flags = Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        return Pattern.compile(regex.toString(), flags);
+    }
+
+    private static Boolean getBoolean(ResultSet resultSet, int column) throws SQLException {
+        boolean value = resultSet.getBoolean(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet resultSet, int column) throws SQLException {
+        double value = resultSet.getDouble(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static Integer getInt(ResultSet resultSet, int column) throws SQLException {
+        int value = resultSet.getInt(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return codes.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        String decode(int code) {
+            return code < 0 ? null : values.get(code);
+        }
+
+        boolean[] matching(Pattern pattern) {
+            boolean[] matches = new boolean[values.size()];
+            for (int code = 0; code < matches.length; code++) {
+                matches[code] = pattern.matcher(values.get(code)).matches();
+            }
+            return matches;
+        }
+
+        void clear() {
+            codes.clear();
+            values.clear();
+        }
+    }
+
+    // Live rows ordered by (field, id), NULLs first as the databases sort them ascending.
+    private final class Permutation {
+        private final String field;
+        private int[] rows = new int[0];
+        private int size;
+
+        private Permutation(String field) {
+            this.field = field;
+        }
+
+        void rebuild() {
+            Integer[] boxed = new Integer[rowsById.size()];
+            int next = 0;
+            for (int row = 0; row < ShipColumnStore.this.size; row++) {
+                if (live[row]) {
+                    boxed[next++] = row;
+                }
+            }
+            Arrays.sort(boxed, 0, next, this::compareRows);
+            rows = new int[Math.max(16, next)];
+            for (int i = 0; i < next; i++) {
+                rows[i] = boxed[i];
+            }
+            size = next;
+        }
+
+        void insert(int row) {
+            int position = -search(row) - 1;
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(16, size * 2));
+            }
+            System.arraycopy(rows, position, rows, position + 1, size - position);
+            rows[position] = row;
+            size++;
+        }
+
+        void remove(int row) {
+            int position = search(row);
+            if (position >= 0) {
+                System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+                size--;
+            }
+        }
+
+        // index of the first row strictly after the cursor position
+        int firstAfter(ShipCursor cursor) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareToCursor(rows[middle], cursor) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int search(int row) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compareRows(rows[middle], row);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private int compareRows(int left, int right) {
+            int comparison;
+            switch (field) {
+                case "speed":
+                    comparison = compareNullable(speeds[left], speeds[right]);
+                    break;
+                case "rating":
+                    comparison = compareNullable(ratings[left], ratings[right]);
+                    break;
+                case "prodDate":
+                    comparison = Integer.compare(prodDays[left], prodDays[right]);
+                    break;
+                default:
+                    comparison = 0;
+            }
+            return comparison != 0 ? comparison : Long.compare(ids[left], ids[right]);
+        }
+
+        private int compareToCursor(int row, ShipCursor cursor) {
+            int comparison;
+            switch (field) {
+                case "speed":
+                    comparison = compareNullable(speeds[row], toDouble(cursor.getValue()));
+                    break;
+                case "rating":
+                    comparison = compareNullable(ratings[row], toDouble(cursor.getValue()));
+                    break;
+                case "prodDate":
+                    Date prodDate = (Date) cursor.getValue();
+                    comparison = prodDays[row] == NULL_INT ? (prodDate == null ? 0 : -1)
+                            : prodDate == null ? 1 : Long.compare(startOfDay(prodDays[row]), prodDate.getTime());
+                    break;
+                default:
+                    comparison = 0;
+            }
+            return comparison != 0 ? comparison : Long.compare(ids[row], cursor.getId());
+        }
+
+        private double toDouble(Object value) {
+            return value == null ? Double.NaN : (Double) value;
+        }
+
+        private int compareNullable(double left, double right) {
+            if (Double.isNaN(left) || Double.isNaN(right)) {
+                return Boolean.compare(!Double.isNaN(left), !Double.isNaN(right));
+            }
+            return Double.compare(left, right);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.space.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Short-lived cache of /rest/ships/count results keyed by filter.
+// Every committed write bumps the generation, so a count that raced with a write is never stored.
+@Component
+public class ShipCountCache {
+    private static final long TIME_TO_LIVE_MILLIS = 5_000;
+    private static final int MAX_ENTRIES = 1024;
+
+    private final ConcurrentMap<ShipFilter, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public Integer get(ShipFilter filter, Supplier<Integer> loader) {
+        long currentGeneration = generation.get();
+        Entry entry = entries.get(filter);
+        if (entry != null && entry.generation == currentGeneration
+                && System.currentTimeMillis() < entry.expiresAt) {
+            return entry.count;
+        }
+
+        Integer count = loader.get();
+        if (generation.get() == currentGeneration) {
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+            entries.put(filter, new Entry(count, currentGeneration, System.currentTimeMillis() + TIME_TO_LIVE_MILLIS));
+        }
+        return count;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipChange(ShipChangeEvent event) {
+        invalidate();
+    }
+
+    private static final class Entry {
+        private final Integer count;
+        private final long generation;
+        private final long expiresAt;
+
+        private Entry(Integer count, long generation, long expiresAt) {
+            this.count = count;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
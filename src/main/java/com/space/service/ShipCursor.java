@@ -0,0 +1,89 @@
+package com.space.service;
+
+import com.space.exeptions400and404.BadRequestException;
+import com.space.model.Ship;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+// Opaque keyset position: the sort field, its value in the last returned row, and that row's id.
+// A null value is encoded as an empty string; such rows sort first (see ShipOrder.getSort).
+public final class ShipCursor {
+    private final String fieldName;
+    private final Object value;
+    private final long id;
+
+    private ShipCursor(String fieldName, Object value, long id) {
+        this.fieldName = fieldName;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static ShipCursor of(Ship ship, String fieldName) {
+        return new ShipCursor(fieldName, valueOf(ship, fieldName), ship.getId());
+    }
+
+    public static ShipCursor decode(String cursor, String expectedFieldName) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", -1);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+        if (parts.length != 3 || !parts[0].equals(expectedFieldName)) {
+            throw new BadRequestException();
+        }
+
+        try {
+            return new ShipCursor(parts[0], parseValue(parts[0], parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    public String encode() {
+        String value = this.value == null ? "" : this.value instanceof Date ? String.valueOf(((Date) this.value).getTime())
+                : String.valueOf(this.value);
+        String raw = fieldName + ":" + value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getFieldName() { return fieldName; }
+
+    public Object getValue() { return value; }
+
+    public long getId() { return id; }
+
+    private static Object valueOf(Ship ship, String fieldName) {
+        switch (fieldName) {
+            case "id":
+                return ship.getId();
+            case "speed":
+                return ship.getSpeed();
+            case "rating":
+                return ship.getRating();
+            case "prodDate":
+                return ship.getProdDate() == null ? null : new Date(ship.getProdDate().getTime());
+            default:
+                throw new IllegalArgumentException(fieldName);
+        }
+    }
+
+    private static Object parseValue(String fieldName, String value) {
+        if (value.isEmpty() && !fieldName.equals("id")) {
+            return null;
+        }
+        switch (fieldName) {
+            case "id":
+                return Long.parseLong(value);
+            case "speed":
+            case "rating":
+                return Double.parseDouble(value);
+            case "prodDate":
+                return new Date(Long.parseLong(value));
+            default:
+                throw new BadRequestException();
+        }
+    }
+}
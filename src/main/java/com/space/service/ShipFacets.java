@@ -0,0 +1,105 @@
+package com.space.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.space.model.ShipType;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Counts per shipType, planet, production year and isUsed, and min/max/avg of the numeric fields, for one filter.
+// Added up from groups of ships sharing all four facet values, so one GROUP BY answers every facet; a ship whose
+// facet value is null is only left out of that facet, and avg skips nulls as SQL AVG does.
+public class ShipFacets {
+    private long totalCount;
+    private final Map<ShipType, Long> shipType = new EnumMap<>(ShipType.class);
+    private final Map<String, Long> planet = new TreeMap<>();
+    private final Map<Integer, Long> prodYear = new TreeMap<>();
+    private final Map<Boolean, Long> isUsed = new TreeMap<>();
+    private final Range speed = new Range();
+    private final Range crewSize = new Range();
+    private final Range rating = new Range();
+
+    // rows as ShipRepositoryCustom.findFacetGroups returns them
+    public static ShipFacets of(List<Object[]> groups) {
+        ShipFacets facets = new ShipFacets();
+        for (Object[] group : groups) {
+            facets.addGroup((ShipType) group[0], (String) group[1], (Integer) group[2], (Boolean) group[3], (Long) group[4]);
+            facets.speed.add((Number) group[5], (Number) group[6], (Number) group[7], (Long) group[8]);
+            facets.crewSize.add((Number) group[9], (Number) group[10], (Number) group[11], (Long) group[12]);
+            facets.rating.add((Number) group[13], (Number) group[14], (Number) group[15], (Long) group[16]);
+        }
+        return facets;
+    }
+
+    public void addGroup(ShipType shipType, String planet, Integer prodYear, Boolean isUsed, long count) {
+        totalCount += count;
+        increment(this.shipType, shipType, count);
+        increment(this.planet, planet, count);
+        increment(this.prodYear, prodYear, count);
+        increment(this.isUsed, isUsed, count);
+    }
+
+    public void addShip(ShipType shipType, String planet, Integer prodYear, Boolean isUsed,
+                        Double speed, Integer crewSize, Double rating) {
+        addGroup(shipType, planet, prodYear, isUsed, 1);
+        this.speed.add(speed, speed, speed, speed == null ? 0 : 1);
+        this.crewSize.add(crewSize, crewSize, crewSize, crewSize == null ? 0 : 1);
+        this.rating.add(rating, rating, rating, rating == null ? 0 : 1);
+    }
+
+    private static <K> void increment(Map<K, Long> counts, K key, long count) {
+        if (key != null) {
+            counts.merge(key, count, Long::sum);
+        }
+    }
+
+    public long getTotalCount() { return totalCount; }
+
+    public Map<ShipType, Long> getShipType() { return shipType; }
+
+    public Map<String, Long> getPlanet() { return planet; }
+
+    public Map<Integer, Long> getProdYear() { return prodYear; }
+
+    public Map<Boolean, Long> getIsUsed() { return isUsed; }
+
+    public Range getSpeed() { return speed; }
+
+    public Range getCrewSize() { return crewSize; }
+
+    public Range getRating() { return rating; }
+
+    // all null while no ship has a value
+    public static final class Range {
+        private Double min;
+        private Double max;
+        private Double avg;
+        @JsonIgnore
+        private double sum;
+        @JsonIgnore
+        private long count;
+
+        void add(Number min, Number max, Number sum, long count) {
+            if (count == 0) {
+                return;
+            }
+            this.min = this.min == null ? min.doubleValue() : Math.min(this.min, min.doubleValue());
+            this.max = this.max == null ? max.doubleValue() : Math.max(this.max, max.doubleValue());
+            this.sum += sum.doubleValue();
+            this.count += count;
+            this.avg = this.sum / this.count;
+        }
+
+        public Double getMin() { return min; }
+
+        public Double getMax() { return max; }
+
+        public Double getAvg() { return avg; }
+
+        double getSum() { return sum; }
+
+        long getCount() { return count; }
+    }
+}
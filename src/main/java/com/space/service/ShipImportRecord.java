@@ -0,0 +1,30 @@
+package com.space.service;
+
+import com.space.model.Ship;
+
+// One line of an import upload: the parsed ship, or why it could not be parsed.
+public class ShipImportRecord {
+    private final long line;
+    private final Ship ship;
+    private final String error;
+
+    private ShipImportRecord(long line, Ship ship, String error) {
+        this.line = line;
+        this.ship = ship;
+        this.error = error;
+    }
+
+    public static ShipImportRecord parsed(long line, Ship ship) {
+        return new ShipImportRecord(line, ship, null);
+    }
+
+    public static ShipImportRecord unparseable(long line, String error) {
+        return new ShipImportRecord(line, null, error);
+    }
+
+    public long getLine() { return line; }
+
+    public Ship getShip() { return ship; }
+
+    public String getError() { return error; }
+}
@@ -0,0 +1,48 @@
+package com.space.service;
+
+import java.util.List;
+
+// Outcome of POST /rest/ships/import. Only the first `ships.import.maxErrors` rejected lines are listed.
+public class ShipImportResult {
+    private final long imported;
+    private final long rejected;
+    private final List<LineError> errors;
+    private final boolean errorsTruncated;
+    private final long millis;
+    private final long rowsPerSecond;
+
+    ShipImportResult(long imported, long rejected, List<LineError> errors, long millis) {
+        this.imported = imported;
+        this.rejected = rejected;
+        this.errors = errors;
+        this.errorsTruncated = rejected > errors.size();
+        this.millis = millis;
+        this.rowsPerSecond = millis == 0 ? imported * 1000 : imported * 1000 / millis;
+    }
+
+    public long getImported() { return imported; }
+
+    public long getRejected() { return rejected; }
+
+    public List<LineError> getErrors() { return errors; }
+
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+
+    public long getMillis() { return millis; }
+
+    public long getRowsPerSecond() { return rowsPerSecond; }
+
+    public static class LineError {
+        private final long line;
+        private final String message;
+
+        LineError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+
+        public String getMessage() { return message; }
+    }
+}
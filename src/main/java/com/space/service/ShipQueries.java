@@ -0,0 +1,86 @@
+package com.space.service;
+
+import com.space.exeptions400and404.ServiceUnavailableException;
+import com.space.model.Ship;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+// The reads behind /rest/ships, /count and /search on the bounded shipQueryExecutor. Every query gets a read-only
+// transaction, and so a connection, of its own; a search is one query here, its page and count share a snapshot.
+// The transaction timeout is the request's, and becomes the JDBC query timeout of each statement; cancelling a future
+// drops its query if it has not started, a running one ends with the timeout at the latest.
+@Component
+public class ShipQueries {
+    @Autowired
+    ShipService shipService;
+
+    @Autowired
+    ShipColumnStore shipColumnStore;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("shipQueryExecutor")
+    Executor executor;
+
+    @Value("${ships.async.timeoutMillis:10000}")
+    long timeoutMillis;
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public CompletableFuture<List<Ship>> page(ShipFilter filter, Pageable pageable) {
+        return submit(() -> shipService.getShipsPage(filter, pageable));
+    }
+
+    public CompletableFuture<List<Ship>> after(ShipFilter filter, Sort sort, ShipCursor cursor, int limit) {
+        return submit(() -> shipService.getShipsAfter(filter, sort, cursor, limit));
+    }
+
+    public CompletableFuture<Integer> count(ShipFilter filter) {
+        return submit(() -> shipService.getShipsCount(filter));
+    }
+
+    public CompletableFuture<ShipFacets> facets(ShipFilter filter) {
+        return submit(() -> shipService.getShipFacets(filter));
+    }
+
+    // Page and count in one REPEATABLE_READ transaction, so under concurrent writes the total matches the page.
+    public CompletableFuture<ShipSearchResult> search(ShipFilter filter, Pageable pageable) {
+        return submit(() -> shipService.searchShips(filter, pageable), TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return submit(query, TransactionDefinition.ISOLATION_DEFAULT);
+    }
+
+    // the service's own @Transactional joins this transaction, so its isolation has to be set here
+    private <T> CompletableFuture<T> submit(Supplier<T> query, int isolation) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setIsolationLevel(isolation);
+        transaction.setTimeout((int) Math.max(1, (timeoutMillis + 999) / 1000));
+        try {
+            return CompletableFuture.supplyAsync(() -> transaction.execute(status -> query.get()), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new ServiceUnavailableException());
+            return rejected;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.space.service;
+
+import java.util.TimeZone;
+
+// The production year and rating rules on primitives: no Calendar, no BigDecimal, nothing allocated per call.
+// Results are identical to the GregorianCalendar / BigDecimal.valueOf(..).setScale(2, HALF_UP) versions
+// for every year in 2800..3019; RatingEquivalenceTest compares them exhaustively.
+public final class ShipRating {
+    // the zone GregorianCalendar would use, read once instead of cloned per call
+    private static final TimeZone ZONE = TimeZone.getDefault();
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private ShipRating() {
+    }
+
+    // Proleptic Gregorian year in the default zone. Unlike Calendar.YEAR it is not folded into an era,
+    // so a date BC comes back as zero or negative.
+    public static int yearOf(long epochMillis) {
+        long epochDay = Math.floorDiv(epochMillis + ZONE.getOffset(epochMillis), MILLIS_PER_DAY);
+
+        // days-to-civil: years start on March 1st so that the leap day ends the year
+        long days = epochDay + 719_468;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long year = yearOfEra + era * 400;
+        return (int) (shiftedMonth >= 10 ? year + 1 : year);
+    }
+
+    public static double rating(double speed, boolean used, int prodYear) {
+        double k = used ? 0.5 : 1;
+        return roundHalfUp2((80 * speed * k) / (3019 - prodYear + 1));
+    }
+
+    // BigDecimal.valueOf(value) rounds the shortest decimal that identifies `value`. That decimal is at or
+    // above a two-place midpoint m exactly when `value` is at or above the double nearest to m, so comparing
+    // doubles decides the tie the same way. `value` must be non-negative and below 2^53 / 100.
+    static double roundHalfUp2(double value) {
+        long hundredths = (long) (value * 100);
+        double midpoint = (hundredths + 0.5) / 100;
+        if (value >= midpoint) {
+            hundredths++;
+        } else if (hundredths > 0 && value < (hundredths - 0.5) / 100) {
+            hundredths--;
+        }
+        return hundredths / 100.0;
+    }
+}
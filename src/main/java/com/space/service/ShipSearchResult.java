@@ -0,0 +1,46 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+public class ShipSearchResult {
+    private final List<Ship> content;
+    private final long totalCount;
+    private final int pageNumber;
+    private final int pageSize;
+    private final int totalPages;
+    private final Integer nextPageNumber;
+    private final String nextCursor;
+
+    public ShipSearchResult(Page<Ship> page) {
+        this.content = page.getContent();
+        this.totalCount = page.getTotalElements();
+        this.pageNumber = page.getNumber();
+        this.pageSize = page.getSize();
+        this.totalPages = page.getTotalPages();
+        this.nextPageNumber = page.hasNext() ? page.getNumber() + 1 : null;
+        this.nextCursor = page.hasNext() && page.hasContent() ? nextCursor(page) : null;
+    }
+
+    private static String nextCursor(Page<Ship> page) {
+        Ship last = page.getContent().get(page.getNumberOfElements() - 1);
+        String fieldName = page.getSort().isSorted() ? page.getSort().iterator().next().getProperty() : "id";
+        return ShipCursor.of(last, fieldName).encode();
+    }
+
+    public List<Ship> getContent() { return content; }
+
+    public long getTotalCount() { return totalCount; }
+
+    public int getPageNumber() { return pageNumber; }
+
+    public int getPageSize() { return pageSize; }
+
+    public int getTotalPages() { return totalPages; }
+
+    public Integer getNextPageNumber() { return nextPageNumber; }
+
+    public String getNextCursor() { return nextCursor; }
+}
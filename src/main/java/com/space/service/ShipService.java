@@ -4,23 +4,44 @@ import com.space.model.Ship;
 import com.space.model.ShipType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface ShipService {
     Page<Ship> getShipsList(Specification<Ship> specification, Pageable sortedBy);
+    Page<Ship> getShipsList(ShipFilter filter, Pageable pageable);
     Integer getShipsCount(Specification<Ship> specification);
+    Integer getShipsCount(ShipFilter filter);
+    List<Ship> getShipsPage(ShipFilter filter, Pageable pageable);
+    ShipSearchResult searchShips(ShipFilter filter, Pageable pageable);
+    ShipFacets getShipFacets(ShipFilter filter);
+    List<Ship> getShipsAfter(ShipFilter filter, Sort sort, ShipCursor cursor, int limit);
+    void exportShips(ShipFilter filter, Sort sort, Consumer<Ship> sink);
     Ship createShip(Ship ship);
+    List<ShipBatchResult> createShips(List<Ship> ships);
+    ShipImportResult importShips(Iterator<ShipImportRecord> records);
     Ship getShip(Long id);
     Long checkId(String id);
     Ship updateShip(Long id, Ship ship);
+    Long patchShip(Long id, Long expectedVersion, Ship changes);
     void deleteShip(Long id);
+    ShipBulkResult updateShips(ShipFilter filter, Ship changes);
+    ShipBulkResult deleteShips(ShipFilter filter);
 
     Specification<Ship> selectByName(String name);
     Specification<Ship> selectByPlanet(String planet);
+    Specification<Ship> selectByText(String name, String planet);
+    Specification<Ship> selectByIds(List<Long> ids);
     Specification<Ship> selectByShipType(ShipType shipType);
     Specification<Ship> selectByProdDate(Long after, Long before);
     Specification<Ship> selectByUse(Boolean isUsed);
     Specification<Ship> selectBySpeed(Double minSpeed, Double maxSpeed);
     Specification<Ship> selectByCrewSize(Integer minCrewSize, Integer maxCrewSize);
     Specification<Ship> selectByRating(Double minRating, Double maxRating);
+    Specification<Ship> selectByFilter(ShipFilter filter);
+    Specification<Ship> selectAfter(ShipCursor cursor);
 }
\ No newline at end of file
@@ -1,26 +1,40 @@
 package com.space.service;
 
 import com.space.exeptions400and404.BadRequestException;
+import com.space.exeptions400and404.ConflictException;
 import com.space.exeptions400and404.NotFoundException;
 import com.space.model.Ship;
 import com.space.model.ShipType;
 import com.space.repository.ShipRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 @Service
 @Transactional
@@ -28,18 +42,203 @@ public class ShipServiceImpl implements ShipService {
     @Autowired
     ShipRepository shipRepository;
 
+    @Autowired
+    ShipCountCache shipCountCache;
+
+    @Autowired
+    ShipTextIndex shipTextIndex;
+
+    @Autowired
+    ShipColumnStore shipColumnStore;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${ships.batch.size:500}")
+    int batchSize;
+
+    @Value("${ships.batch.maxItems:10000}")
+    int maxBatchItems;
+
+    @Value("${ships.bulk.chunkSize:1000}")
+    int bulkChunkSize;
+
+    @Value("${ships.export.fetchSize:1000}")
+    int exportFetchSize;
+
+    @Value("${ships.import.transactionRows:5000}")
+    int importTransactionRows;
+
+    @Value("${ships.import.maxErrors:1000}")
+    int importMaxErrors;
+
     @Override
     public Page<Ship> getShipsList(Specification<Ship> specification, Pageable sortedBy) {
         return shipRepository.findAll(specification, sortedBy);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Ship> getShipsList(ShipFilter filter, Pageable pageable) {
+        if (shipColumnStore.isEnabled()) {
+            return shipColumnStore.findPage(filter, pageable);
+        }
+        return getShipsList(selectByFilter(filter), pageable);
+    }
+
     @Override
     public Integer getShipsCount(Specification<Ship> specification) {
-        return shipRepository.findAll(specification).size();
+        return Math.toIntExact(shipRepository.count(specification));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Integer getShipsCount(ShipFilter filter) {
+        if (shipColumnStore.isEnabled()) {
+            return shipColumnStore.count(filter);
+        }
+        return shipCountCache.get(filter, () -> getShipsCount(selectByFilter(filter)));
+    }
+
+    // Page content only: GET /rest/ships has no use for the count query a Page would add.
+    @Override
+    @Transactional(readOnly = true)
+    public List<Ship> getShipsPage(ShipFilter filter, Pageable pageable) {
+        if (shipColumnStore.isEnabled()) {
+            return shipColumnStore.findPage(filter, pageable).getContent();
+        }
+        return shipRepository.findPage(selectByFilter(filter), pageable);
+    }
+
+    // REPEATABLE_READ keeps the page query and its count query on the same snapshot.
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ShipSearchResult searchShips(ShipFilter filter, Pageable pageable) {
+        if (shipColumnStore.isEnabled()) {
+            return new ShipSearchResult(shipColumnStore.findPage(filter, pageable));
+        }
+        return new ShipSearchResult(shipRepository.findAll(selectByFilter(filter), pageable));
+    }
+
+    // Every facet from one grouped pass, in the database or over the column store.
+    @Override
+    @Transactional(readOnly = true)
+    public ShipFacets getShipFacets(ShipFilter filter) {
+        if (shipColumnStore.isEnabled()) {
+            return shipColumnStore.facets(filter);
+        }
+        return ShipFacets.of(shipRepository.findFacetGroups(selectByFilter(filter)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Ship> getShipsAfter(ShipFilter filter, Sort sort, ShipCursor cursor, int limit) {
+        if (shipColumnStore.isEnabled()) {
+            return shipColumnStore.findAfter(filter, sort, cursor, limit);
+        }
+        return shipRepository.findAll(selectByFilter(filter).and(selectAfter(cursor)), sort, limit);
+    }
+
+    // Export reads from the database cursor even when the column store is enabled.
+    @Override
+    @Transactional(readOnly = true)
+    public void exportShips(ShipFilter filter, Sort sort, Consumer<Ship> sink) {
+        shipRepository.forEach(selectByFilter(filter), sort, exportFetchSize, sink);
     }
 
     @Override
     public Ship createShip(Ship ship) {
+        prepareNewShip(ship);
+
+        Ship savedShip = shipRepository.save(ship);
+        eventPublisher.publishEvent(ShipChangeEvent.created(savedShip));
+        return savedShip;
+    }
+
+    // Valid elements are inserted together in JDBC batches of `batchSize`; invalid ones are reported, not thrown.
+    @Override
+    public List<ShipBatchResult> createShips(List<Ship> ships) {
+        if (ships == null || ships.size() > maxBatchItems) {
+            throw new BadRequestException();
+        }
+
+        List<ShipBatchResult> results = new ArrayList<>(ships.size());
+        List<Ship> validShips = new ArrayList<>(ships.size());
+        for (int i = 0; i < ships.size(); i++) {
+            Ship ship = ships.get(i);
+            try {
+                if (ship == null) {
+                    throw new BadRequestException();
+                }
+                prepareNewShip(ship);
+                validShips.add(ship);
+                results.add(ShipBatchResult.created(i, ship));
+            } catch (BadRequestException e) {
+                results.add(ShipBatchResult.rejected(i));
+            }
+        }
+
+        shipRepository.insertAll(validShips, batchSize);
+        for (Ship ship : validShips) {
+            eventPublisher.publishEvent(ShipChangeEvent.created(ship));
+        }
+        return results;
+    }
+
+    // Reads the records as they are parsed and commits every `importTransactionRows` valid ships, so memory is
+    // bounded by one transaction whatever the upload size. A failing line is reported and skipped.
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ShipImportResult importShips(Iterator<ShipImportRecord> records) {
+        long start = System.nanoTime();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Ship> pending = new ArrayList<>(importTransactionRows);
+        List<ShipImportResult.LineError> errors = new ArrayList<>();
+        long imported = 0;
+        long rejected = 0;
+
+        while (records.hasNext()) {
+            ShipImportRecord record = records.next();
+            String error = record.getError();
+            if (error == null) {
+                try {
+                    prepareNewShip(record.getShip());
+                    pending.add(record.getShip());
+                } catch (BadRequestException e) {
+                    error = "ship fails validation";
+                }
+            }
+            if (error != null && rejected++ < importMaxErrors) {
+                errors.add(new ShipImportResult.LineError(record.getLine(), error));
+            }
+            if (pending.size() == importTransactionRows) {
+                imported += insertInTransaction(transaction, pending);
+            }
+        }
+        imported += insertInTransaction(transaction, pending);
+        return new ShipImportResult(imported, rejected, errors, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int insertInTransaction(TransactionTemplate transaction, List<Ship> ships) {
+        if (ships.isEmpty()) {
+            return 0;
+        }
+        transaction.execute(status -> {
+            shipRepository.insertAll(ships, batchSize);
+            for (Ship ship : ships) {
+                eventPublisher.publishEvent(ShipChangeEvent.created(ship));
+            }
+            return null;
+        });
+        int inserted = ships.size();
+        ships.clear();
+        return inserted;
+    }
+
+    private void prepareNewShip(Ship ship) {
         if (ship.getName() == null || ship.getPlanet() == null || ship.getShipType() == null || ship.getProdDate() == null
                 || ship.getSpeed() == null || ship.getCrewSize() == null) {
             throw new BadRequestException();
@@ -57,13 +256,12 @@ public class ShipServiceImpl implements ShipService {
 
         Double rating = computeRating(ship);
         ship.setRating(rating);
-
-        return shipRepository.save(ship);
     }
 
     @Override
     public Ship updateShip(Long id, Ship ship) {
         Ship updatedShip = getShip(id);
+        Ship previous = ShipChangeEvent.copyOf(updatedShip);
 
         String name = ship.getName();
         if (name != null) {
@@ -108,7 +306,98 @@ public class ShipServiceImpl implements ShipService {
         Double rating = computeRating(updatedShip);
         updatedShip.setRating(rating);
 
-        return shipRepository.save(updatedShip);
+        // flushed here so that a concurrent write surfaces as a 409 instead of failing the commit
+        Ship savedShip;
+        try {
+            savedShip = shipRepository.saveAndFlush(updatedShip);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ConflictException();
+        }
+        eventPublisher.publishEvent(ShipChangeEvent.updated(previous, savedShip));
+        return savedShip;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ShipBulkResult updateShips(ShipFilter filter, Ship changes) {
+        checkChanges(changes);
+        return inChunks(filter, ids -> shipRepository.updateByIds(ids, changes));
+    }
+
+    // One UPDATE of the fields present in `changes`, without merging the ship in the session. The row is read
+    // and locked first, so listeners get the state it replaced. A stale `expectedVersion` is a conflict.
+    @Override
+    public Long patchShip(Long id, Long expectedVersion, Ship changes) {
+        checkChanges(changes);
+        Ship previous = shipRepository.findLockedById(id).orElseThrow(NotFoundException::new);
+        if (expectedVersion != null && expectedVersion != previous.getVersion()
+                || shipRepository.updateById(id, expectedVersion, changes) == 0) {
+            throw new ConflictException();
+        }
+        eventPublisher.publishEvent(ShipChangeEvent.modified(previous, changes));
+        return previous.getVersion() + 1;
+    }
+
+    private void checkChanges(Ship changes) {
+        if (changes == null || changes.getName() == null && changes.getPlanet() == null && changes.getShipType() == null
+                && changes.getProdDate() == null && changes.getUsed() == null && changes.getSpeed() == null
+                && changes.getCrewSize() == null) {
+            throw new BadRequestException();
+        }
+        if (changes.getName() != null) {
+            checkShipName(changes);
+        }
+        if (changes.getPlanet() != null) {
+            checkShipPlanet(changes);
+        }
+        if (changes.getProdDate() != null) {
+            checkShipProdDate(changes);
+        }
+        if (changes.getSpeed() != null) {
+            checkShipSpeed(changes);
+        }
+        if (changes.getCrewSize() != null) {
+            checkShipCrewSize(changes);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ShipBulkResult deleteShips(ShipFilter filter) {
+        return inChunks(filter, shipRepository::deleteByIds);
+    }
+
+    // Walks the matching ids in id order, `bulkChunkSize` rows per transaction, so locks and undo stay bounded.
+    // Each chunk re-runs the filter past the last id, so a row is visited at most once even if the change
+    // makes it match or stop matching.
+    private ShipBulkResult inChunks(ShipFilter filter, ToIntFunction<List<Long>> operation) {
+        if (filter.isEmpty()) {
+            throw new BadRequestException();
+        }
+
+        Specification<Ship> specification = selectByFilter(filter);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long affected = 0;
+        int chunks = 0;
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            long[] chunkAffected = new long[1];
+            List<Long> ids = transaction.execute(status -> {
+                List<Long> chunk = shipRepository.findIdsAfter(specification, afterId, bulkChunkSize);
+                if (!chunk.isEmpty()) {
+                    chunkAffected[0] = operation.applyAsInt(chunk);
+                    eventPublisher.publishEvent(ShipChangeEvent.reloaded());
+                }
+                return chunk;
+            });
+            if (ids.isEmpty()) {
+                return new ShipBulkResult(affected, chunks);
+            }
+            affected += chunkAffected[0];
+            chunks++;
+            lastId = ids.get(ids.size() - 1);
+        }
     }
 
     private void checkShipName(Ship ship) {
@@ -126,10 +415,7 @@ public class ShipServiceImpl implements ShipService {
     }
 
     private void checkShipProdDate(Ship ship) {
-        Date prodDate = ship.getProdDate();
-        Calendar calendar = new GregorianCalendar();
-        calendar.setTime(prodDate);
-        int year = calendar.get(Calendar.YEAR);
+        int year = ShipRating.yearOf(ship.getProdDate().getTime());
         if (year < 2800 || year > 3019) {
             throw new BadRequestException();
         }
@@ -150,33 +436,24 @@ public class ShipServiceImpl implements ShipService {
     }
 
     private Double computeRating(Ship ship) {
-        double k = ship.getUsed() ? 0.5 : 1;
-        Calendar calendar = new GregorianCalendar();
-        calendar.setTime(ship.getProdDate());
-        int prodYear = calendar.get(Calendar.YEAR);
-        BigDecimal rating = BigDecimal.valueOf((80 * ship.getSpeed() * k) / (3019 - prodYear + 1)).setScale(2, RoundingMode.HALF_UP);
-        return rating.doubleValue();
+        return ShipRating.rating(ship.getSpeed(), ship.getUsed(), ShipRating.yearOf(ship.getProdDate().getTime()));
     }
 
     @Override
     public Ship getShip(Long id) {
-        if (!shipRepository.existsById(id)) {
-            throw new NotFoundException();
-        }
-
-        return shipRepository.findById(id).get();
+        return shipRepository.findById(id).orElseThrow(NotFoundException::new);
     }
 
     @Override
     public void deleteShip(Long id) {
-        if (!shipRepository.existsById(id)) {
-            throw new NotFoundException();
-        }
-
-        shipRepository.deleteById(id);
+        Ship ship = getShip(id);
+        shipRepository.delete(ship);
+        eventPublisher.publishEvent(ShipChangeEvent.deleted(ship));
     }
 
+    // pure parsing; no transaction, so a conditional GET answered from ShipVersions never opens a session
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long checkId(String id) {
         Long longId = null;
 
@@ -223,6 +500,31 @@ public class ShipServiceImpl implements ShipService {
         };
     }
 
+    // Resolves name/planet through the trigram index; terms it cannot answer exactly keep their LIKE predicate.
+    @Override
+    public Specification<Ship> selectByText(String name, String planet) {
+        ShipTextIndex.Lookup lookup = shipTextIndex.lookup(name, planet);
+        if (!lookup.isSelective()) {
+            return Specification.where(selectByName(name)).and(selectByPlanet(planet));
+        }
+        return Specification.where(selectByIds(lookup.getIds()))
+                .and(lookup.isNameResolved() ? null : selectByName(name))
+                .and(lookup.isPlanetResolved() ? null : selectByPlanet(planet));
+    }
+
+    @Override
+    public Specification<Ship> selectByIds(List<Long> ids) {
+        return new Specification<Ship>() {
+            @Override
+            public Predicate toPredicate(Root<Ship> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+                if (ids.isEmpty()) {
+                    return criteriaBuilder.disjunction();
+                }
+                return root.get("id").in(ids);
+            }
+        };
+    }
+
     @Override
     public Specification<Ship> selectByShipType(ShipType shipType) {
         return new Specification<Ship>() {
@@ -255,19 +557,23 @@ public class ShipServiceImpl implements ShipService {
                     return criteriaBuilder.greaterThanOrEqualTo(root.get("prodDate"), tempAfter);
                 }
 
-                Calendar beforeCalendar = new GregorianCalendar();
-                beforeCalendar.setTime(new Date(before));
-                beforeCalendar.set(Calendar.HOUR, 0);
-                beforeCalendar.add(Calendar.MILLISECOND, 0);
-
                 Date tempAfter = new Date(after);
-                Date tempBefore = beforeCalendar.getTime();
+                Date tempBefore = prodDateUpperBound(before);
 
                 return criteriaBuilder.between(root.get("prodDate"), tempAfter, tempBefore);
             }
         };
     }
 
+    // upper bound used when both `after` and `before` are given
+    static Date prodDateUpperBound(Long before) {
+        Calendar beforeCalendar = new GregorianCalendar();
+        beforeCalendar.setTime(new Date(before));
+        beforeCalendar.set(Calendar.HOUR, 0);
+        beforeCalendar.add(Calendar.MILLISECOND, 0);
+        return beforeCalendar.getTime();
+    }
+
     @Override
     public Specification<Ship> selectByUse(Boolean isUsed) {
         return new Specification<Ship>() {
@@ -341,4 +647,44 @@ public class ShipServiceImpl implements ShipService {
             }
         };
     }
+
+    @Override
+    public Specification<Ship> selectByFilter(ShipFilter filter) {
+        return Specification.where(selectByText(filter.getName(), filter.getPlanet())
+                .and(selectByShipType(filter.getShipType()))
+                .and(selectByProdDate(filter.getAfter(), filter.getBefore()))
+                .and(selectByUse(filter.getUsed()))
+                .and(selectBySpeed(filter.getMinSpeed(), filter.getMaxSpeed()))
+                .and(selectByCrewSize(filter.getMinCrewSize(), filter.getMaxCrewSize()))
+                .and(selectByRating(filter.getMinRating(), filter.getMaxRating())));
+    }
+
+    // Seeks past the cursor on (sort field, id), matching the order produced by ShipOrder.getSort().
+    @Override
+    public Specification<Ship> selectAfter(ShipCursor cursor) {
+        return new Specification<Ship>() {
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public Predicate toPredicate(Root<Ship> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+                if (cursor == null) {
+                    return null;
+                }
+                Path<Long> id = root.get("id");
+                if (cursor.getFieldName().equals("id")) {
+                    return criteriaBuilder.greaterThan(id, cursor.getId());
+                }
+                Path<Comparable> field = root.get(cursor.getFieldName());
+                Comparable value = (Comparable) cursor.getValue();
+                if (value == null) {
+                    // NULLs sort first: the rest of them by id, then every row that has a value
+                    return criteriaBuilder.or(criteriaBuilder.isNotNull(field),
+                            criteriaBuilder.and(criteriaBuilder.isNull(field), criteriaBuilder.greaterThan(id, cursor.getId())));
+                }
+                // NULLs, which sort first, fail the comparisons; the redundant field >= value lets the (field, id) index start the range at the cursor
+                return criteriaBuilder.and(criteriaBuilder.greaterThanOrEqualTo(field, value),
+                        criteriaBuilder.or(criteriaBuilder.greaterThan(field, value),
+                                criteriaBuilder.and(criteriaBuilder.equal(field, value), criteriaBuilder.greaterThan(id, cursor.getId()))));
+            }
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,327 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Fleet-wide numbers for the dashboard, kept up to date by every committed create, update and delete instead of being
+// recounted per view. Counters are LongAdders and ratings are summed in hundredths, so parallel writers neither
+// contend on one cell nor accumulate rounding error. Built from the database at startup and compared with it on a
+// schedule; a mismatch is logged and the database wins. Changes whose previous state is unknown (bulk statements)
+// rebuild on the loader executor; until it is done reads get the last numbers, marked stale, and rebuilds asked
+// for meanwhile are folded into one.
+// Writers share the read side of the lock from before their commit until the change is counted. A rebuild takes the
+// write side only for a moment before and after its query, never while it runs, and keeps the result only if no change
+// was counted in between: then it neither saw a half-applied change nor read a committed row whose change is still to
+// come. Otherwise it tries again, and after a few tries leaves the rebuild to the next read.
+@Component
+public class ShipStatistics {
+    private static final Logger LOG = LoggerFactory.getLogger(ShipStatistics.class);
+    private static final int LOAD_ATTEMPTS = 5;
+
+    @Autowired
+    ShipRepository shipRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("shipLoader")
+    Executor loader;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong requestedGeneration = new AtomicLong(1);
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile long loadedGeneration;
+    private final AtomicLong countedChanges = new AtomicLong();
+    private volatile Counters counters = new Counters();
+    private final AtomicLong drifts = new AtomicLong();
+    private volatile long reconciledAt;
+
+    public Snapshot getSnapshot() {
+        boolean stale = !isLoaded();
+        if (stale) {
+            scheduleRebuild();
+        }
+        return new Snapshot(counters, stale, drifts.get(), reconciledAt);
+    }
+
+    public boolean isLoaded() {
+        return loadedGeneration == requestedGeneration.get();
+    }
+
+    // once per transaction; released after the commit's changes are counted, or after a rollback
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeCommit(ShipChangeEvent event) {
+        if (needsRebuild(event) || TransactionSynchronizationManager.hasResource(lock)) {
+            return;
+        }
+        lock.readLock().lock();
+        TransactionSynchronizationManager.bindResource(lock, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(lock);
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipChange(ShipChangeEvent event) {
+        if (needsRebuild(event)) {
+            requestedGeneration.incrementAndGet();
+            scheduleRebuild();
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            countedChanges.incrementAndGet();
+            if (event.getPrevious() != null) {
+                counters.add(event.getPrevious(), -1);
+            }
+            if (event.getCurrent() != null) {
+                counters.add(event.getCurrent(), 1);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean needsRebuild(ShipChangeEvent event) {
+        return event.getType() == ShipChangeEvent.Type.RELOADED;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            loader.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuild() {
+        try {
+            for (int attempt = 0; !isLoaded(); attempt++) {
+                if (attempt == LOAD_ATTEMPTS) {
+                    LOG.debug("Fleet statistics kept changing during {} rebuilds, the next read tries again", attempt);
+                    return;
+                }
+                Load load = load();
+                lock.writeLock().lock();
+                try {
+                    if (load.isCurrent()) {
+                        counters = load.counters;
+                        loadedGeneration = load.generation;
+                        reconciledAt = System.currentTimeMillis();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Fleet statistics rebuild failed, the last numbers are served until the next read", e);
+            return;
+        } finally {
+            rebuilding.set(false);
+        }
+        // a change that asked for a rebuild after the loop's last check
+        if (!isLoaded()) {
+            scheduleRebuild();
+        }
+    }
+
+    // Returns whether the counters had drifted from the database.
+    @Scheduled(fixedDelayString = "${ships.statistics.reconcileMillis:60000}",
+            initialDelayString = "${ships.statistics.reconcileMillis:60000}")
+    public boolean reconcile() {
+        Load load = load();
+        lock.writeLock().lock();
+        try {
+            if (!load.isCurrent()) {
+                // which of the changes counted meanwhile the query saw is unknown, so it proves nothing
+                return false;
+            }
+            Counters actual = load.counters;
+            boolean drifted = loadedGeneration == load.generation && !actual.sameAs(counters);
+            if (drifted) {
+                drifts.incrementAndGet();
+                LOG.warn("Fleet statistics drifted from the database: {} ships counted, {} stored",
+                        counters.total.sum(), actual.total.sum());
+            }
+            counters = actual;
+            loadedGeneration = load.generation;
+            reconciledAt = System.currentTimeMillis();
+            return drifted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Runs the query outside the lock; only the bookkeeping before it waits for commits being counted to finish.
+    private Load load() {
+        long generation;
+        long counted;
+        lock.writeLock().lock();
+        try {
+            generation = requestedGeneration.get();
+            counted = countedChanges.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new Load(generation, counted, loadCounters());
+    }
+
+    private Counters loadCounters() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        ShipFacets facets = transaction.execute(status ->
+                ShipFacets.of(shipRepository.findFacetGroups(Specification.where(null))));
+        Counters loaded = new Counters();
+        loaded.total.add(facets.getTotalCount());
+        facets.getShipType().forEach((shipType, count) -> loaded.byType.get(shipType).add(count));
+        facets.getPlanet().forEach((planet, count) -> loaded.planet(planet).add(count));
+        loaded.rated.add(facets.getRating().getCount());
+        loaded.ratingHundredths.add(Math.round(facets.getRating().getSum() * 100));
+        return loaded;
+    }
+
+    private final class Load {
+        private final long generation;
+        private final long counted;
+        private final Counters counters;
+
+        private Load(long generation, long counted, Counters counters) {
+            this.generation = generation;
+            this.counted = counted;
+            this.counters = counters;
+        }
+
+        // under the write lock: no change was counted since the query started, and no newer load was kept
+        private boolean isCurrent() {
+            return countedChanges.get() == counted && generation >= loadedGeneration;
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder total = new LongAdder();
+        private final Map<ShipType, LongAdder> byType = new EnumMap<>(ShipType.class);
+        private final ConcurrentMap<String, LongAdder> byPlanet = new ConcurrentHashMap<>();
+        private final LongAdder rated = new LongAdder();
+        private final LongAdder ratingHundredths = new LongAdder();
+
+        private Counters() {
+            for (ShipType shipType : ShipType.values()) {
+                byType.put(shipType, new LongAdder());
+            }
+        }
+
+        private void add(Ship ship, int sign) {
+            total.add(sign);
+            if (ship.getShipType() != null) {
+                byType.get(ship.getShipType()).add(sign);
+            }
+            if (ship.getPlanet() != null) {
+                planet(ship.getPlanet()).add(sign);
+            }
+            if (ship.getRating() != null) {
+                rated.add(sign);
+                ratingHundredths.add(sign * Math.round(ship.getRating() * 100));
+            }
+        }
+
+        private LongAdder planet(String planet) {
+            return byPlanet.computeIfAbsent(planet, key -> new LongAdder());
+        }
+
+        private boolean sameAs(Counters other) {
+            return total.sum() == other.total.sum() && rated.sum() == other.rated.sum()
+                    && ratingHundredths.sum() == other.ratingHundredths.sum()
+                    && sums(byType).equals(sums(other.byType)) && sums(byPlanet).equals(sums(other.byPlanet));
+        }
+
+        // buckets that dropped to zero are left out
+        private static <K> Map<K, Long> sums(Map<K, LongAdder> counters) {
+            Map<K, Long> sums = new TreeMap<>();
+            counters.forEach((key, counter) -> {
+                long sum = counter.sum();
+                if (sum != 0) {
+                    sums.put(key, sum);
+                }
+            });
+            return sums;
+        }
+    }
+
+    public static final class Snapshot {
+        private final long totalShips;
+        private final Map<ShipType, Long> byType;
+        private final Map<String, Long> byPlanet;
+        private final Double averageRating;
+        private final boolean stale;
+        private final long drifts;
+        private final long reconciledAt;
+
+        private Snapshot(Counters counters, boolean stale, long drifts, long reconciledAt) {
+            this.totalShips = counters.total.sum();
+            this.byType = Counters.sums(counters.byType);
+            this.byPlanet = Counters.sums(counters.byPlanet);
+            long rated = counters.rated.sum();
+            this.averageRating = rated == 0 ? null : counters.ratingHundredths.sum() / 100.0 / rated;
+            this.stale = stale;
+            this.drifts = drifts;
+            this.reconciledAt = reconciledAt;
+        }
+
+        public long getTotalShips() { return totalShips; }
+
+        public Map<ShipType, Long> getByType() { return byType; }
+
+        public Map<String, Long> getByPlanet() { return byPlanet; }
+
+        public Double getAverageRating() { return averageRating; }
+
+        // a rebuild is pending and the numbers may be behind the database
+        public boolean isStale() { return stale; }
+
+        public long getDrifts() { return drifts; }
+
+        public long getReconciledAt() { return reconciledAt; }
+    }
+}
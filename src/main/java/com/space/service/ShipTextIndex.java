@@ -0,0 +1,456 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Trigram inverted index over Ship.name and Ship.planet, so `name` / `planet` filters resolve to ids in memory
+// instead of a LIKE '%x%' scan. Candidates are verified against the indexed value, so with exact case
+// the result is the LIKE result; with ignoreCase (MySQL's *_ci collations) it is a superset the database narrows.
+// The fold (NFD, marks stripped, lower case) only agrees with the collation on ASCII, which e.g. equates ß with s:
+// so under ignoreCase a term that folds outside ASCII goes to LIKE, and a value that does is always a candidate.
+// Ships are numbered densely and posting lists are sorted row numbers, so memory follows the row count, not the ids.
+// The table is read on the loader executor at startup and after RELOADED; until then lookups fall back to LIKE,
+// and changes committed while the table is read are replayed onto the new index before it replaces the old one.
+public class ShipTextIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(ShipTextIndex.class);
+    // past this many ids an IN list costs more than letting the database evaluate LIKE
+    static final int MAX_IN_LIST = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor loader;
+    private final boolean ignoreCase;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong requestedGeneration = new AtomicLong(1);
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private volatile long loadedGeneration;
+    private Index index;
+    // changes seen while a load reads the table; null when none runs
+    private List<ShipChangeEvent> pending;
+
+    public ShipTextIndex(DataSource dataSource, Executor loader, boolean ignoreCase) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.loader = loader;
+        this.ignoreCase = ignoreCase;
+        this.index = new Index(ignoreCase);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        scheduleLoad();
+    }
+
+    public boolean isLoaded() {
+        return loadedGeneration == requestedGeneration.get();
+    }
+
+    public Lookup lookup(String name, String planet) {
+        boolean nameIndexable = isIndexable(name);
+        boolean planetIndexable = isIndexable(planet);
+        if (!nameIndexable && !planetIndexable) {
+            return new Lookup(null, false, false);
+        }
+        if (!isLoaded()) {
+            scheduleLoad();
+            return new Lookup(null, false, false);
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] rows = null;
+            if (nameIndexable) {
+                rows = index.names.matching(fold(name));
+            }
+            if (planetIndexable) {
+                int[] planetRows = index.planets.matching(fold(planet));
+                rows = rows == null ? planetRows : intersect(rows, planetRows);
+            }
+            return new Lookup(rows.length > MAX_IN_LIST ? null : index.idsOf(rows),
+                    nameIndexable && !ignoreCase, planetIndexable && !ignoreCase);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipChange(ShipChangeEvent event) {
+        if (event.getType() == ShipChangeEvent.Type.RELOADED) {
+            requestedGeneration.incrementAndGet();
+            scheduleLoad();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            apply(index, event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // idempotent, so replaying a change the load already read is harmless
+    private void apply(Index index, ShipChangeEvent event) {
+        long id = event.getShipId();
+        Ship ship = event.getShip();
+        if (event.getType() == ShipChangeEvent.Type.MODIFIED) {
+            if (ship.getName() != null) {
+                index.names.put(index.rowOf(id), fold(ship.getName()));
+            }
+            if (ship.getPlanet() != null) {
+                index.planets.put(index.rowOf(id), fold(ship.getPlanet()));
+            }
+        } else if (ship == null) {
+            index.remove(id);
+        } else {
+            index.put(id, fold(ship.getName()), fold(ship.getPlanet()));
+        }
+    }
+
+    private void scheduleLoad() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            loader.execute(this::load);
+        } catch (RejectedExecutionException e) {
+            loading.set(false);
+        }
+    }
+
+    private void load() {
+        try {
+            while (!isLoaded()) {
+                long generation = requestedGeneration.get();
+                lock.writeLock().lock();
+                try {
+                    pending = new ArrayList<>();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                Index loaded = new Index(ignoreCase);
+                try {
+                    jdbcTemplate.query("SELECT id, name, planet FROM ship", resultSet -> {
+                        loaded.put(resultSet.getLong(1), fold(resultSet.getString(2)), fold(resultSet.getString(3)));
+                    });
+                } catch (RuntimeException e) {
+                    LOG.warn("Text index load failed, name and planet filters use LIKE until the next attempt", e);
+                    lock.writeLock().lock();
+                    try {
+                        pending = null;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    return;
+                }
+
+                lock.writeLock().lock();
+                try {
+                    for (ShipChangeEvent event : pending) {
+                        apply(loaded, event);
+                    }
+                    pending = null;
+                    index = loaded;
+                    loadedGeneration = generation;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            loading.set(false);
+        }
+        // a RELOADED that arrived after the loop's last check
+        if (!isLoaded()) {
+            scheduleLoad();
+        }
+    }
+
+    // LIKE wildcards and escapes in the term are left to the database, and so are terms the fold may not collate
+    private boolean isIndexable(String term) {
+        if (term == null || term.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                return false;
+            }
+        }
+        return !ignoreCase || isAscii(fold(term));
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String fold(String value) {
+        if (value == null || !ignoreCase) {
+            return value;
+        }
+        String stripped = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT);
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    public static final class Lookup {
+        private final List<Long> ids;
+        private final boolean nameResolved;
+        private final boolean planetResolved;
+
+        private Lookup(List<Long> ids, boolean nameResolved, boolean planetResolved) {
+            this.ids = ids;
+            this.nameResolved = nameResolved;
+            this.planetResolved = planetResolved;
+        }
+
+        public boolean isSelective() {
+            return ids != null;
+        }
+
+        // in id order
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        // true when the ids alone are the LIKE result for that term and the LIKE predicate can be dropped
+        public boolean isNameResolved() { return nameResolved; }
+
+        public boolean isPlanetResolved() { return planetResolved; }
+    }
+
+    // Ship ids numbered 0..n; numbers of deleted ships are handed out again.
+    private static final class Index {
+        private final Map<Long, Integer> rowsById = new HashMap<>();
+        private final Deque<Integer> freeRows = new ArrayDeque<>();
+        private long[] ids = new long[16];
+        private int size;
+        private final Column names;
+        private final Column planets;
+
+        Index(boolean ignoreCase) {
+            names = new Column(ignoreCase);
+            planets = new Column(ignoreCase);
+        }
+
+        void put(long id, String name, String planet) {
+            int row = rowOf(id);
+            names.put(row, name);
+            planets.put(row, planet);
+        }
+
+        void remove(long id) {
+            Integer row = rowsById.remove(id);
+            if (row != null) {
+                names.put(row, null);
+                planets.put(row, null);
+                freeRows.push(row);
+            }
+        }
+
+        int rowOf(long id) {
+            Integer row = rowsById.get(id);
+            if (row != null) {
+                return row;
+            }
+            if (freeRows.isEmpty()) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                row = size++;
+            } else {
+                row = freeRows.pop();
+            }
+            ids[row] = id;
+            rowsById.put(id, row);
+            return row;
+        }
+
+        List<Long> idsOf(int[] rows) {
+            List<Long> result = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                result.add(ids[row]);
+            }
+            Collections.sort(result);
+            return result;
+        }
+    }
+
+    private static final class Column {
+        private final Map<Long, Postings> postings = new HashMap<>();
+        private String[] values = new String[16];
+        // under ignoreCase, rows whose folded value left ASCII: every term may match them
+        private final Postings uncollated;
+
+        Column(boolean ignoreCase) {
+            uncollated = ignoreCase ? new Postings() : null;
+        }
+
+        void put(int row, String value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, values.length * 2));
+            }
+            if (uncollated != null) {
+                uncollated.remove(row);
+                if (value != null && !isAscii(value)) {
+                    uncollated.add(row);
+                }
+            }
+            String previous = values[row];
+            if (previous != null) {
+                for (int i = 0; i + 3 <= previous.length(); i++) {
+                    Long key = trigram(previous, i);
+                    Postings rows = postings.get(key);
+                    if (rows != null && rows.remove(row) && rows.size == 0) {
+                        postings.remove(key);
+                    }
+                }
+            }
+            values[row] = value;
+            if (value != null) {
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    postings.computeIfAbsent(trigram(value, i), key -> new Postings()).add(row);
+                }
+            }
+        }
+
+        // rows in ascending order
+        int[] matching(String term) {
+            int[] rows = containing(term);
+            return uncollated == null || uncollated.size == 0 ? rows : union(rows, uncollated);
+        }
+
+        private int[] containing(String term) {
+            if (term.length() < 3) {
+                int[] rows = new int[16];
+                int size = 0;
+                for (int row = 0; row < values.length; row++) {
+                    if (values[row] != null && values[row].contains(term)) {
+                        if (size == rows.length) {
+                            rows = Arrays.copyOf(rows, size * 2);
+                        }
+                        rows[size++] = row;
+                    }
+                }
+                return Arrays.copyOf(rows, size);
+            }
+
+            // every trigram of the term is in the value when the term is, so the shortest list bounds the candidates
+            Postings shortest = null;
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                Postings rows = postings.get(trigram(term, i));
+                if (rows == null) {
+                    return new int[0];
+                }
+                if (shortest == null || rows.size < shortest.size) {
+                    shortest = rows;
+                }
+            }
+            int[] matches = new int[shortest.size];
+            int size = 0;
+            for (int i = 0; i < shortest.size; i++) {
+                int row = shortest.rows[i];
+                if (values[row].contains(term)) {
+                    matches[size++] = row;
+                }
+            }
+            return Arrays.copyOf(matches, size);
+        }
+
+        private static int[] union(int[] left, Postings right) {
+            int[] result = new int[left.length + right.size];
+            int size = 0;
+            for (int i = 0, j = 0; i < left.length || j < right.size; ) {
+                if (j == right.size || i < left.length && left[i] < right.rows[j]) {
+                    result[size++] = left[i++];
+                } else if (i == left.length || left[i] > right.rows[j]) {
+                    result[size++] = right.rows[j++];
+                } else {
+                    result[size++] = left[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        private static Long trigram(String value, int from) {
+            return ((long) value.charAt(from) << 32) | ((long) value.charAt(from + 1) << 16) | value.charAt(from + 2);
+        }
+    }
+
+    // a sorted set of row numbers; a load adds rows in ascending order, which only appends
+    private static final class Postings {
+        private int[] rows = new int[4];
+        private int size;
+
+        void add(int row) {
+            int at = Arrays.binarySearch(rows, 0, size, row);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            System.arraycopy(rows, at, rows, at + 1, size - at);
+            rows[at] = row;
+            size++;
+        }
+
+        boolean remove(int row) {
+            int at = Arrays.binarySearch(rows, 0, size, row);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(rows, at + 1, rows, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.space.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// What conditional GETs are validated against without a query: a table-level generation bumped by every
+// committed write, and the versions of ships read since their last write.
+@Component
+public class ShipVersions {
+    private static final int MAX_ENTRIES = 100_000;
+
+    // generations restart with the process; the epoch keeps an old list ETag from matching a new one
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    // null when the ship has not been read since it was last written
+    public Long getVersion(long id) {
+        return versions.get(id);
+    }
+
+    // `readGeneration` is the generation taken before the ship was loaded. If a write committed since then,
+    // the version may already be stale and is dropped again.
+    public void remember(long id, long version, long readGeneration) {
+        if (versions.size() >= MAX_ENTRIES) {
+            versions.clear();
+        }
+        versions.put(id, version);
+        if (generation.get() != readGeneration) {
+            versions.remove(id);
+        }
+    }
+
+    // the generation moves before the version is forgotten, so remember() cannot slip a stale version in between
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShipChange(ShipChangeEvent event) {
+        generation.incrementAndGet();
+        if (event.getType() == ShipChangeEvent.Type.RELOADED) {
+            versions.clear();
+        } else {
+            versions.remove(event.getShipId());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- Range filters and ShipOrder sort keys; the trailing id serves the (field, id) keyset seek.
+CREATE INDEX idx_ship_speed ON ship (speed, id);
+CREATE INDEX idx_ship_rating ON ship (rating, id);
+CREATE INDEX idx_ship_prod_date ON ship (prodDate, id);
+CREATE INDEX idx_ship_crew_size ON ship (crewSize);
+
+-- Low-cardinality equality filters lead, followed by the range column they are combined with.
+CREATE INDEX idx_ship_type_prod_date ON ship (shipType, prodDate);
+CREATE INDEX idx_ship_used_rating ON ship (isUsed, rating);
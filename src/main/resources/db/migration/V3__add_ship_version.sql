@@ -0,0 +1,2 @@
+-- Optimistic-lock version, also the source of the strong ETag on GET /rest/ships/{id}.
+ALTER TABLE ship ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
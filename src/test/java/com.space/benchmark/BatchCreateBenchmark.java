@@ -0,0 +1,79 @@
+package com.space.benchmark;
+
+import com.space.config.AppConfig;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+// Rows/sec for creating ships one POST /rest/ships at a time versus POST /rest/ships/batch at several JDBC batch sizes.
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.space.benchmark.BatchCreateBenchmark
+public class BatchCreateBenchmark {
+    private static final int ROWS = Integer.getInteger("rows", 20_000);
+    private static final int REQUEST_SIZE = Integer.getInteger("requestSize", 1_000);
+    private static final int[] BATCH_SIZES = {1, 50, 500};
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up the JIT and is not reported
+            boolean report = round == 1;
+            report(report, "single", run(0));
+            for (int batchSize : BATCH_SIZES) {
+                report(report, "batch " + batchSize, run(batchSize));
+            }
+        }
+    }
+
+    // batchSize 0 means one createShip call per row
+    private static double run(int batchSize) {
+        System.setProperty("ships.batch.size", String.valueOf(Math.max(1, batchSize)));
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class);
+        context.refresh();
+
+        try {
+            ShipService shipService = context.getBean(ShipService.class);
+            long start = System.nanoTime();
+            if (batchSize == 0) {
+                for (int i = 0; i < ROWS; i++) {
+                    shipService.createShip(ship(i));
+                }
+            } else {
+                for (int from = 0; from < ROWS; from += REQUEST_SIZE) {
+                    List<Ship> request = new ArrayList<>(REQUEST_SIZE);
+                    for (int i = from; i < Math.min(ROWS, from + REQUEST_SIZE); i++) {
+                        request.add(ship(i));
+                    }
+                    shipService.createShips(request);
+                }
+            }
+            return ROWS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Ship ship(int i) {
+        Ship ship = new Ship();
+        ship.setName("Bench " + i);
+        ship.setPlanet("Planet " + i % 9);
+        ship.setShipType(ShipType.values()[i % 3]);
+        ship.setProdDate(new GregorianCalendar(2800 + i % 220, Calendar.JUNE, 1).getTime());
+        ship.setUsed(i % 2 == 0);
+        ship.setSpeed((1 + i % 99) / 100.0);
+        ship.setCrewSize(1 + i % 9999);
+        return ship;
+    }
+
+    private static void report(boolean report, String mode, double rowsPerSecond) {
+        if (report) {
+            System.out.printf("%-10s %10.0f rows/s%n", mode, rowsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.space.benchmark;
+
+import com.space.config.AppConfig;
+import com.space.controller.ShipOrder;
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.model.Ship;
+import com.space.service.ShipCursor;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Compares the cost of page 1 and page 10,000 (pageSize 3) for OFFSET and keyset paging on every ShipOrder.
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.space.benchmark.KeysetPaginationBenchmark
+public class KeysetPaginationBenchmark {
+    private static final int ROWS = Integer.getInteger("rows", 200_000);
+    private static final int PAGE_SIZE = 3;
+    private static final int DEEP_PAGE = 9_999;
+    private static final int ITERATIONS = Integer.getInteger("iterations", 30);
+
+    public static void main(String[] args) {
+        // measure the database, not Hibernate's query cache
+        System.setProperty("ships.queryCache.enabled", "false");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class);
+        context.refresh();
+
+        try {
+            DataSource dataSource = context.getBean(DataSource.class);
+            // H2 would otherwise hand back the previous result of an identical query
+            new JdbcTemplate(dataSource).execute("SET OPTIMIZE_REUSE_RESULTS 0");
+            new ShipTableSeeder(dataSource).seed(ROWS);
+            ShipService shipService = context.getBean(ShipService.class);
+            ShipFilter noFilter = new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+
+            System.out.printf("%-8s %14s %14s %14s %14s%n", "order", "offset p1 ms", "offset p10k ms", "keyset p1 ms", "keyset p10k ms");
+            for (ShipOrder order : ShipOrder.values()) {
+                List<Ship> beforeDeepPage = shipService.getShipsList(shipService.selectByFilter(noFilter),
+                        PageRequest.of(DEEP_PAGE - 1, PAGE_SIZE, order.getSort())).getContent();
+                ShipCursor deepCursor = ShipCursor.of(beforeDeepPage.get(PAGE_SIZE - 1), order.getFieldName());
+
+                double offsetFirst = time(() -> shipService.getShipsList(shipService.selectByFilter(noFilter),
+                        PageRequest.of(0, PAGE_SIZE, order.getSort())));
+                double offsetDeep = time(() -> shipService.getShipsList(shipService.selectByFilter(noFilter),
+                        PageRequest.of(DEEP_PAGE, PAGE_SIZE, order.getSort())));
+                double keysetFirst = time(() -> shipService.getShipsAfter(noFilter, order.getSort(), null, PAGE_SIZE + 1));
+                double keysetDeep = time(() -> shipService.getShipsAfter(noFilter, order.getSort(), deepCursor, PAGE_SIZE + 1));
+
+                System.out.printf("%-8s %14.3f %14.3f %14.3f %14.3f%n", order, offsetFirst, offsetDeep, keysetFirst, keysetDeep);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static double time(Supplier<?> operation) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.get();
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
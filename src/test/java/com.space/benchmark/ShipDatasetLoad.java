@@ -0,0 +1,48 @@
+package com.space.benchmark;
+
+import com.space.controller.utils.ShipBulkLoader;
+import com.space.controller.utils.ShipDataset;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+
+// Loads a reproducible synthetic dataset into the database at -Durl, creating the schema with the app's migrations.
+// Without -Durl it loads an in-memory H2 database, which only measures the loader.
+// The same -Dseed and distributions always produce the same rows.
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.space.benchmark.ShipDatasetLoad
+//        -Drows=5000000 -Durl="jdbc:mysql://localhost:3306/cosmoport?serverTimezone=UTC&allowLoadLocalInfile=true"
+//        -Duser=root -Dpassword=root -Dmode=CSV -Dplanets=Mars=5,Earth=3 -Dyears=2800-2899=1,2900-3019=4
+public class ShipDatasetLoad {
+    private static final long ROWS = Long.getLong("rows", 1_000_000);
+    private static final long SEED = Long.getLong("seed", 42);
+    private static final String URL = System.getProperty("url", "jdbc:h2:mem:dataset;DB_CLOSE_DELAY=-1");
+
+    public static void main(String[] args) throws Exception {
+        ShipDataset dataset = new ShipDataset(SEED);
+        if (System.getProperty("planets") != null) {
+            dataset.planets(System.getProperty("planets"));
+        }
+        if (System.getProperty("shipTypes") != null) {
+            dataset.shipTypes(System.getProperty("shipTypes"));
+        }
+        if (System.getProperty("years") != null) {
+            dataset.years(System.getProperty("years"));
+        }
+        dataset.speed(Double.parseDouble(System.getProperty("speedMean", "0.5")),
+                Double.parseDouble(System.getProperty("speedDeviation", "0.2")));
+        dataset.usedShare(Double.parseDouble(System.getProperty("usedShare", "0.5")));
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(URL);
+            dataSource.setUsername(System.getProperty("user", "sa"));
+            dataSource.setPassword(System.getProperty("password", ""));
+            Flyway.configure().dataSource(dataSource).locations("classpath:db/migration")
+                    .baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+            ShipBulkLoader.Mode mode = ShipBulkLoader.Mode.valueOf(System.getProperty("mode", "INSERT"));
+            long start = System.nanoTime();
+            long loaded = new ShipBulkLoader(dataSource).load(dataset, 0, ROWS, mode);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %d rows in %.1f s, %.0f rows/s (seed %d)%n", mode, loaded, seconds, loaded / seconds, SEED);
+        }
+    }
+}
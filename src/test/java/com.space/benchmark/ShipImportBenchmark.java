@@ -0,0 +1,91 @@
+package com.space.benchmark;
+
+import com.space.config.AppConfig;
+import com.space.controller.ShipExportFormat;
+import com.space.service.ShipImportResult;
+import com.space.service.ShipService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+
+// Rows/sec and peak heap for POST /rest/ships/import on a generated upload that is never held in memory.
+// The in-memory H2 database shares the heap, so the peak grows with the table, not with the upload.
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.space.benchmark.ShipImportBenchmark -Drows=2000000
+public class ShipImportBenchmark {
+    private static final long ROWS = Long.getLong("rows", 500_000);
+
+    public static void main(String[] args) throws Exception {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class);
+        context.refresh();
+
+        try {
+            for (ShipExportFormat format : ShipExportFormat.values()) {
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    pool.resetPeakUsage();
+                }
+                ShipImportResult result = context.getBean(ShipService.class).importShips(format.reader(new Upload(format)));
+                System.out.printf("%-7s %10d rows %8d rows/s  peak heap %5d MB%n", format, result.getImported(),
+                        result.getRowsPerSecond(), peakHeap() / (1024 * 1024));
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    // generates the upload line by line as it is read
+    private static class Upload extends InputStream {
+        private final ShipExportFormat format;
+        private byte[] line;
+        private int position;
+        private long row = -1;
+
+        Upload(ShipExportFormat format) {
+            this.format = format;
+            line = format == ShipExportFormat.CSV
+                    ? "name,planet,shipType,prodDate,isUsed,speed,crewSize\n".getBytes(StandardCharsets.UTF_8)
+                    : new byte[0];
+        }
+
+        @Override
+        public int read() {
+            while (position == line.length) {
+                if (row + 1 >= ROWS) {
+                    return -1;
+                }
+                line = line(++row).getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return line[position++];
+        }
+
+        private String line(long i) {
+            String type = new String[]{"MERCHANT", "MILITARY", "TRANSPORT"}[(int) (i % 3)];
+            long prodDate = 26_000_000_000_000L + 8 * 31_556_952_000L + (i % 200) * 31_556_952_000L;
+            double speed = (1 + i % 99) / 100.0;
+            long crewSize = 1 + i % 9999;
+            if (format == ShipExportFormat.CSV) {
+                return "Import " + i + ",Planet " + i % 9 + "," + type + "," + prodDate + "," + (i % 2 == 0) + ","
+                        + speed + "," + crewSize + "\n";
+            }
+            return "{\"name\":\"Import " + i + "\",\"planet\":\"Planet " + i % 9 + "\",\"shipType\":\"" + type
+                    + "\",\"prodDate\":" + prodDate + ",\"isUsed\":" + (i % 2 == 0) + ",\"speed\":" + speed
+                    + ",\"crewSize\":" + crewSize + "}\n";
+        }
+    }
+}
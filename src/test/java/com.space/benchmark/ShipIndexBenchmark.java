@@ -0,0 +1,102 @@
+package com.space.benchmark;
+
+import com.space.config.AppConfig;
+import com.space.controller.ShipOrder;
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.model.ShipType;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Times representative filtered list queries with and without the V2 secondary indexes.
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.space.benchmark.ShipIndexBenchmark
+public class ShipIndexBenchmark {
+    private static final int ROWS = Integer.getInteger("rows", 500_000);
+    private static final int ITERATIONS = Integer.getInteger("iterations", 20);
+    private static final String[] INDEXES = {"idx_ship_speed", "idx_ship_rating", "idx_ship_prod_date",
+            "idx_ship_crew_size", "idx_ship_type_prod_date", "idx_ship_used_rating"};
+
+    public static void main(String[] args) throws Exception {
+        // measure the database, not Hibernate's query cache
+        System.setProperty("ships.queryCache.enabled", "false");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class);
+        context.refresh();
+
+        try {
+            DataSource dataSource = context.getBean(DataSource.class);
+            // H2 would otherwise hand back the previous result of an identical query
+            new JdbcTemplate(dataSource).execute("SET OPTIMIZE_REUSE_RESULTS 0");
+            dropIndexes(dataSource);
+            new ShipTableSeeder(dataSource).seed(ROWS);
+            ShipService shipService = context.getBean(ShipService.class);
+
+            Map<String, Runnable> queries = new LinkedHashMap<>();
+            queries.put("speed range, order SPEED", () -> list(shipService,
+                    filter(null, null, null, 0.40, 0.41, null, null, null, null), ShipOrder.SPEED));
+            queries.put("rating >= 19, order RATING", () -> list(shipService,
+                    filter(null, null, null, null, null, null, null, 19.0, null), ShipOrder.RATING));
+            queries.put("shipType + after, order DATE", () -> list(shipService,
+                    filter(ShipType.MERCHANT, 32503680000000L, null, null, null, null, null, null, null), ShipOrder.DATE));
+            queries.put("isUsed + maxRating", () -> list(shipService,
+                    filter(null, null, true, null, null, null, null, null, 0.05), ShipOrder.ID));
+            queries.put("crewSize range", () -> list(shipService,
+                    filter(null, null, null, null, null, 100, 110, null, null), ShipOrder.ID));
+
+            Map<String, Double> before = timeAll(queries);
+            try (Connection connection = dataSource.getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V2__add_ship_filter_indexes.sql"));
+            }
+            Map<String, Double> after = timeAll(queries);
+
+            System.out.printf("%-32s %14s %14s%n", "query (" + ROWS + " rows)", "no index ms", "indexed ms");
+            for (String name : queries.keySet()) {
+                System.out.printf("%-32s %14.3f %14.3f%n", name, before.get(name), after.get(name));
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static ShipFilter filter(ShipType shipType, Long after, Boolean isUsed, Double minSpeed, Double maxSpeed,
+                                     Integer minCrewSize, Integer maxCrewSize, Double minRating, Double maxRating) {
+        return new ShipFilter(null, null, shipType, after, null, isUsed, minSpeed, maxSpeed,
+                minCrewSize, maxCrewSize, minRating, maxRating);
+    }
+
+    private static void list(ShipService shipService, ShipFilter filter, ShipOrder order) {
+        shipService.getShipsList(shipService.selectByFilter(filter), PageRequest.of(0, 3, order.getSort()));
+    }
+
+    private static void dropIndexes(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String index : INDEXES) {
+            jdbcTemplate.execute("DROP INDEX " + index);
+        }
+    }
+
+    private static Map<String, Double> timeAll(Map<String, Runnable> queries) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            for (int i = 0; i < ITERATIONS; i++) {
+                query.getValue().run();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                query.getValue().run();
+            }
+            result.put(query.getKey(), (System.nanoTime() - start) / 1e6 / ITERATIONS);
+        }
+        return result;
+    }
+}
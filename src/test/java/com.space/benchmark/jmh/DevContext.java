@@ -0,0 +1,25 @@
+package com.space.benchmark.jmh;
+
+import com.space.config.AppConfig;
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.service.ShipChangeEvent;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sql.DataSource;
+
+// The root context of the tests: embedded H2 under the "dev" profile, seeded with `rows` synthetic ships.
+final class DevContext {
+
+    private DevContext() {
+    }
+
+    static AnnotationConfigApplicationContext open(int rows) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class);
+        context.refresh();
+        new ShipTableSeeder(context.getBean(DataSource.class)).seed(rows);
+        context.publishEvent(ShipChangeEvent.reloaded());
+        return context;
+    }
+}
@@ -0,0 +1,79 @@
+package com.space.benchmark.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.space.config.WebConfig;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serializes a page of ships with the ObjectMapper WebConfig registers for the REST endpoints.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+    @Param({"3", "100", "1000"})
+    public int ships;
+
+    private ObjectWriter writer;
+    private List<Ship> page;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+
+    @Setup
+    public void setup() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        new WebConfig().configureMessageConverters(converters);
+        ObjectMapper objectMapper = ((MappingJackson2HttpMessageConverter) converters.get(0)).getObjectMapper();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Ship.class));
+
+        page = new ArrayList<>(ships);
+        ShipType[] types = ShipType.values();
+        for (int i = 0; i < ships; i++) {
+            Ship ship = new Ship();
+            ship.setId(i + 1);
+            ship.setName("Seed " + i);
+            ship.setPlanet(i % 2 == 0 ? "Mars" : "Saturn");
+            ship.setShipType(types[i % types.length]);
+            ship.setProdDate(new Date(32503680000000L + i * 86_400_000L));
+            ship.setUsed(i % 3 == 0);
+            ship.setSpeed(0.01 + (i % 99) / 100.0);
+            ship.setCrewSize(1 + i % 9999);
+            ship.setRating((i % 2000) / 100.0);
+            page.add(ship);
+        }
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public int toStream() throws IOException {
+        buffer.reset();
+        writer.writeValue(buffer, page);
+        return buffer.size();
+    }
+}
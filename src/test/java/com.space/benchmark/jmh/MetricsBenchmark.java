@@ -0,0 +1,87 @@
+package com.space.benchmark.jmh;
+
+import com.space.diagnostics.LatencyHistogram;
+import com.space.diagnostics.MethodTimer;
+import com.space.diagnostics.MetricsRegistry;
+import com.space.diagnostics.PoolMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+// What the metrics add to a call: a histogram record, and a proxied call with and without MethodTimer.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetricsBenchmark {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private MetricsRegistry registry;
+    private LongUnaryOperator plain;
+    private LongUnaryOperator timed;
+    private long value;
+
+    @Setup
+    public void setup() {
+        registry = new MetricsRegistry(new PoolMetrics());
+        LongUnaryOperator target = operand -> operand + 1;
+        plain = proxy(target, false);
+        timed = proxy(target, true);
+        for (int i = 0; i < 20; i++) {
+            registry.handler("ShipController.handler" + i).record(200, i * 1_000_000L);
+            registry.timer("service", "ShipService.method" + i).record(i * 1_000L);
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.record(value += 7_919);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.record(System.nanoTime() & 0xFFFFFF);
+    }
+
+    @Benchmark
+    public long proxiedCall() {
+        return plain.applyAsLong(value++);
+    }
+
+    @Benchmark
+    public long timedProxiedCall() {
+        return timed.applyAsLong(value++);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int scrape() throws Exception {
+        StringWriter out = new StringWriter(64 * 1024);
+        registry.writePrometheus(out);
+        return out.getBuffer().length();
+    }
+
+    private LongUnaryOperator proxy(LongUnaryOperator target, boolean withTimer) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.addInterface(LongUnaryOperator.class);
+        if (withTimer) {
+            factory.addAdvice(new MethodTimer(registry, "service", LongUnaryOperator.class));
+        }
+        return (LongUnaryOperator) factory.getProxy();
+    }
+}
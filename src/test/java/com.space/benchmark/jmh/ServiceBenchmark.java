@@ -0,0 +1,88 @@
+package com.space.benchmark.jmh;
+
+import com.space.controller.ShipOrder;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.concurrent.TimeUnit;
+
+// ShipService list and count as the controller calls them, against embedded H2 seeded with `rows` ships.
+// Row count and column store are parameters: -p rows=100000 -p columnStore=true
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServiceBenchmark {
+    private static final int FILTERS = 64;
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean columnStore;
+
+    @Param({"false"})
+    public boolean queryCache;
+
+    private AnnotationConfigApplicationContext context;
+    private ShipService shipService;
+    private final ShipFilter[] filters = new ShipFilter[FILTERS];
+    private final Pageable page = PageRequest.of(1, 20, ShipOrder.SPEED.getSort());
+    private int next;
+
+    @Setup
+    public void setup() {
+        System.setProperty("ships.columnStore.enabled", String.valueOf(columnStore));
+        System.setProperty("ships.queryCache.enabled", String.valueOf(queryCache));
+        context = DevContext.open(rows);
+        shipService = context.getBean(ShipService.class);
+
+        // distinct filters so that neither the count cache nor H2 answers every call from one entry
+        ShipType[] types = ShipType.values();
+        for (int i = 0; i < FILTERS; i++) {
+            double minSpeed = 0.01 + (i % 32) / 50.0;
+            filters[i] = new ShipFilter(null, null, types[i % types.length], null, null, i % 2 == 0,
+                    minSpeed, minSpeed + 0.3, null, null, null, null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Ship> list() {
+        return shipService.getShipsList(nextFilter(), page);
+    }
+
+    @Benchmark
+    public Integer count() {
+        return shipService.getShipsCount(nextFilter());
+    }
+
+    private ShipFilter nextFilter() {
+        next = (next + 1) % FILTERS;
+        return filters[next];
+    }
+}
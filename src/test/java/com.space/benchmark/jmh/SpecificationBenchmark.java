@@ -0,0 +1,86 @@
+package com.space.benchmark.jmh;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.AopTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.concurrent.TimeUnit;
+
+// The Specification chain findAll builds from its filter parameters, alone and resolved into a criteria predicate.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpecificationBenchmark {
+    @Param({"empty", "ranges", "all"})
+    public String filter;
+
+    private AnnotationConfigApplicationContext context;
+    private ShipService shipService;
+    private EntityManager entityManager;
+    private CriteriaBuilder criteriaBuilder;
+    private ShipFilter shipFilter;
+
+    @Setup
+    public void setup() {
+        context = DevContext.open(1_000);
+        // getShipsList calls selectByFilter on itself, past the transactional proxy
+        shipService = AopTestUtils.getTargetObject(context.getBean(ShipService.class));
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        criteriaBuilder = entityManager.getCriteriaBuilder();
+        switch (filter) {
+            case "ranges":
+                shipFilter = new ShipFilter(null, null, null, 32503680000000L, 33000000000000L, null,
+                        0.2, 0.8, 10, 5000, 1.0, 20.0);
+                break;
+            case "all":
+                shipFilter = new ShipFilter("Seed 4", "ar", ShipType.MERCHANT, 32503680000000L, 33000000000000L, true,
+                        0.2, 0.8, 10, 5000, 1.0, 20.0);
+                break;
+            default:
+                shipFilter = new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Specification<Ship> build() {
+        return shipService.selectByFilter(shipFilter);
+    }
+
+    @Benchmark
+    public Predicate buildAndResolve() {
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+        return shipService.selectByFilter(shipFilter).toPredicate(root, query, criteriaBuilder);
+    }
+}
@@ -0,0 +1,85 @@
+package com.space.benchmark.jmh;
+
+import com.space.exeptions400and404.BadRequestException;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipRating;
+import com.space.service.ShipServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// checkShip* and computeRating, reached through createShip with a repository that only echoes the ship back.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidationBenchmark {
+    private ShipServiceImpl shipService;
+    private Ship valid;
+    private Ship invalid;
+    private long prodDate;
+
+    @Setup
+    public void setup() {
+        ShipRepository echo = (ShipRepository) Proxy.newProxyInstance(ShipRepository.class.getClassLoader(),
+                new Class<?>[]{ShipRepository.class}, (proxy, method, args) -> args[0]);
+        ApplicationEventPublisher ignore = event -> {
+        };
+
+        shipService = new ShipServiceImpl();
+        ReflectionTestUtils.setField(shipService, "shipRepository", echo);
+        ReflectionTestUtils.setField(shipService, "eventPublisher", ignore);
+
+        prodDate = 32_000_000_000_000L;
+        valid = ship(0.73);
+        invalid = ship(1.5);
+    }
+
+    @Benchmark
+    public Ship validateAndRate() {
+        return shipService.createShip(valid);
+    }
+
+    @Benchmark
+    public Object rejectInvalid() {
+        try {
+            return shipService.createShip(invalid);
+        } catch (BadRequestException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public double rating() {
+        return ShipRating.rating(0.73, true, ShipRating.yearOf(prodDate));
+    }
+
+    private Ship ship(double speed) {
+        Ship ship = new Ship();
+        ship.setName("Daedalus");
+        ship.setPlanet("Mars");
+        ship.setShipType(ShipType.MERCHANT);
+        ship.setProdDate(new Date(prodDate));
+        ship.setUsed(true);
+        ship.setSpeed(speed);
+        ship.setCrewSize(120);
+        return ship;
+    }
+}
@@ -0,0 +1,52 @@
+package com.space.benchmark.load;
+
+import com.space.config.MyWebAppInit;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// The whole application, as MyWebAppInit deploys it, in an embedded Tomcat on a free port.
+// The "dev" profile is pinned before MyWebAppInit runs, so the app gets its own in-memory H2 database.
+public class EmbeddedCosmoport implements AutoCloseable {
+    private final Tomcat tomcat = new Tomcat();
+    private final Context context;
+
+    public EmbeddedCosmoport(int maxThreads) throws IOException, LifecycleException {
+        Path baseDir = Files.createTempDirectory("cosmoport-tomcat");
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        tomcat.getConnector().setProperty("maxThreads", String.valueOf(maxThreads));
+        tomcat.getConnector().setProperty("maxKeepAliveRequests", "-1");
+        // every client keeps a connection open; the worker threads, not the connection count, are the container's limit
+        tomcat.getConnector().setProperty("maxConnections", "-1");
+
+        context = tomcat.addContext("", baseDir.toString());
+        // the server would parent the webapp class loader on the system one, which exec:java does not load the app into
+        context.setParentClassLoader(EmbeddedCosmoport.class.getClassLoader());
+        context.addServletContainerInitializer((classes, servletContext) -> {
+            servletContext.setInitParameter("spring.profiles.active", "dev");
+            new MyWebAppInit().onStartup(servletContext);
+        }, null);
+        tomcat.start();
+    }
+
+    public String url(String path) {
+        return "http://localhost:" + tomcat.getConnector().getLocalPort() + path;
+    }
+
+    public WebApplicationContext rootContext() {
+        return WebApplicationContextUtils.getRequiredWebApplicationContext(context.getServletContext());
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
@@ -0,0 +1,48 @@
+package com.space.benchmark.load;
+
+import java.util.Arrays;
+
+// Every recorded latency, kept exactly; percentiles are nearest-rank over the sorted samples.
+// One instance per client thread and operation, merged once the run is over.
+public class LatencySamples {
+    private long[] nanos = new long[1024];
+    private int size;
+    private boolean sorted = true;
+
+    public void add(long elapsedNanos) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = elapsedNanos;
+        sorted = false;
+    }
+
+    public void addAll(LatencySamples other) {
+        if (size + other.size > nanos.length) {
+            nanos = Arrays.copyOf(nanos, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.nanos, 0, nanos, size, other.size);
+        size += other.size;
+        sorted = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long percentile(double fraction) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(nanos, 0, size);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(fraction * size);
+        return nanos[Math.max(rank, 1) - 1];
+    }
+
+    public long max() {
+        return percentile(1);
+    }
+}
@@ -0,0 +1,318 @@
+package com.space.benchmark.load;
+
+import com.space.controller.utils.ShipBulkLoader;
+import com.space.controller.utils.ShipDataset;
+import com.space.service.ShipChangeEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Drives a mix of REST calls from concurrent clients against the embedded application loaded with `rows` ShipDataset ships,
+// then reports throughput and p50/p99/p999 per operation. The run fails when a latency budget is exceeded
+// or an operation answers with an unexpected status.
+//   -Dmix=list=40,count=20,get=25,create=5,update=5,delete=5   relative weights
+//   -Dbudget=*.p99=250,list.p999=1000                          milliseconds, `*` applies to every operation
+// Any application property can be overridden as well, e.g. -Dships.columnStore.enabled=true
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.space.benchmark.load.LoadTest -Dclients=32
+public class LoadTest {
+    private static final int ROWS = Integer.getInteger("rows", 20_000);
+    private static final long SEED = Long.getLong("seed", 42);
+    private static final int CLIENTS = Integer.getInteger("clients", 16);
+    private static final int WARMUP_SECONDS = Integer.getInteger("warmupSeconds", 5);
+    private static final int SECONDS = Integer.getInteger("seconds", 20);
+    private static final String MIX = System.getProperty("mix", "list=40,count=20,get=25,create=5,update=5,delete=5");
+    private static final String BUDGET = System.getProperty("budget", "*.p99=250,*.p999=1000");
+
+    private static final Pattern CREATED_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern BUDGET_ENTRY = Pattern.compile("(\\*|[a-z]+)\\.(p50|p99|p999)=(\\d+)");
+    private static final String[] TYPES = {"TRANSPORT", "MILITARY", "MERCHANT"};
+    private static final String[] ORDERS = {"ID", "SPEED", "DATE", "RATING"};
+
+    enum Operation {
+        LIST, COUNT, GET, CREATE, UPDATE, DELETE;
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final String baseUrl;
+    private final long firstId;
+    private final long lastId;
+    private final int[] weights = new int[Operation.values().length];
+    private final ConcurrentLinkedDeque<Long> created = new ConcurrentLinkedDeque<>();
+
+    private LoadTest(String baseUrl, long firstId, long lastId) {
+        this.baseUrl = baseUrl;
+        this.firstId = firstId;
+        this.lastId = lastId;
+        for (String entry : MIX.split(",")) {
+            String[] parts = entry.trim().split("=");
+            weights[Operation.valueOf(parts[0].toUpperCase()).ordinal()] = Integer.parseInt(parts[1]);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // HttpURLConnection keeps only 5 idle connections per host by default
+        System.setProperty("http.maxConnections", String.valueOf(CLIENTS));
+
+        try (EmbeddedCosmoport app = new EmbeddedCosmoport(Math.max(CLIENTS, 10))) {
+            WebApplicationContext context = app.rootContext();
+            DataSource dataSource = context.getBean(DataSource.class);
+            new ShipBulkLoader(dataSource).load(new ShipDataset(SEED), 0, ROWS, ShipBulkLoader.Mode.INSERT);
+            context.publishEvent(ShipChangeEvent.reloaded());
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            long firstId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM ship", Long.class);
+            long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM ship", Long.class);
+
+            Report report = new LoadTest(app.url("/rest"), firstId, lastId).run();
+            report.print();
+            List<String> violations = report.violations(BUDGET);
+            if (!violations.isEmpty()) {
+                throw new IllegalStateException("Load test failed: " + String.join("; ", violations));
+            }
+        }
+    }
+
+    private Report run() throws InterruptedException {
+        long measureFrom = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        long measureUntil = measureFrom + SECONDS * 1_000_000_000L;
+        List<Client> clients = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            Client client = new Client(measureFrom, measureUntil, done);
+            clients.add(client);
+            Thread thread = new Thread(client, "load-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        Report report = new Report(SECONDS);
+        for (Client client : clients) {
+            report.add(client);
+        }
+        return report;
+    }
+
+    private final class Client implements Runnable {
+        private final long measureFrom;
+        private final long measureUntil;
+        private final CountDownLatch done;
+        private final Map<Operation, LatencySamples> samples = new EnumMap<>(Operation.class);
+        private final long[] errors = new long[Operation.values().length];
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        private final int totalWeight;
+
+        Client(long measureFrom, long measureUntil, CountDownLatch done) {
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            this.done = done;
+            int sum = 0;
+            for (Operation operation : Operation.values()) {
+                samples.put(operation, new LatencySamples());
+                sum += weights[operation.ordinal()];
+            }
+            this.totalWeight = sum;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            try {
+                while (System.nanoTime() < measureUntil) {
+                    Operation operation = pick(random.nextInt(totalWeight));
+                    Long deleteId = null;
+                    if (operation == Operation.DELETE) {
+                        deleteId = created.pollFirst();
+                        if (deleteId == null) {
+                            operation = Operation.CREATE;
+                        }
+                    }
+
+                    long start = System.nanoTime();
+                    boolean ok;
+                    try {
+                        ok = call(operation, deleteId, random);
+                    } catch (IOException e) {
+                        ok = false;
+                    }
+                    long finish = System.nanoTime();
+
+                    if (start >= measureFrom && finish <= measureUntil) {
+                        samples.get(operation).add(finish - start);
+                        if (!ok) {
+                            errors[operation.ordinal()]++;
+                        }
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private Operation pick(int ticket) {
+            for (Operation operation : Operation.values()) {
+                ticket -= weights[operation.ordinal()];
+                if (ticket < 0) {
+                    return operation;
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        private boolean call(Operation operation, Long deleteId, ThreadLocalRandom random) throws IOException {
+            switch (operation) {
+                case LIST: {
+                    double minSpeed = random.nextInt(1, 90) / 100.0;
+                    return request("GET", "/ships?order=" + ORDERS[random.nextInt(ORDERS.length)]
+                            + "&pageNumber=" + random.nextInt(5) + "&pageSize=20"
+                            + "&minSpeed=" + minSpeed + "&maxSpeed=" + (minSpeed + 0.1), null) == 200;
+                }
+                case COUNT:
+                    return request("GET", "/ships/count?shipType=" + TYPES[random.nextInt(TYPES.length)]
+                            + "&isUsed=" + random.nextBoolean(), null) == 200;
+                case GET:
+                    return request("GET", "/ships/" + seededId(random), null) == 200;
+                case CREATE: {
+                    if (request("POST", "/ships", shipJson(random)) != 200) {
+                        return false;
+                    }
+                    Matcher matcher = CREATED_ID.matcher(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+                    if (matcher.find()) {
+                        created.addLast(Long.parseLong(matcher.group(1)));
+                    }
+                    return true;
+                }
+                case UPDATE: {
+                    // concurrent updates of one ship legitimately lose with 409
+                    int status = request("POST", "/ships/" + seededId(random),
+                            "{\"speed\":" + random.nextInt(1, 100) / 100.0 + "}");
+                    return status == 200 || status == 409;
+                }
+                case DELETE:
+                    return request("DELETE", "/ships/" + deleteId, null) == 200;
+                default:
+                    throw new IllegalArgumentException(operation.name());
+            }
+        }
+
+        private long seededId(ThreadLocalRandom random) {
+            return random.nextLong(firstId, lastId + 1);
+        }
+
+        private String shipJson(ThreadLocalRandom random) {
+            return "{\"name\":\"Load " + random.nextInt(1_000_000) + "\",\"planet\":\"Mars\",\"shipType\":\""
+                    + TYPES[random.nextInt(TYPES.length)] + "\",\"prodDate\":" + random.nextLong(26_192_246_400_000L, 32_503_680_000_000L)
+                    + ",\"isUsed\":" + random.nextBoolean() + ",\"speed\":" + random.nextInt(1, 100) / 100.0
+                    + ",\"crewSize\":" + random.nextInt(1, 10_000) + "}";
+        }
+
+        // Reads the whole response so that the connection goes back to the keep-alive pool.
+        private int request(String method, String path, String json) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            if (json != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(json.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            buffer.reset();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    byte[] chunk = new byte[8192];
+                    for (int read; (read = in.read(chunk)) != -1; ) {
+                        buffer.write(chunk, 0, read);
+                    }
+                }
+            }
+            return status;
+        }
+    }
+
+    private static final class Report {
+        private final int seconds;
+        private final Map<Operation, LatencySamples> samples = new EnumMap<>(Operation.class);
+        private final long[] errors = new long[Operation.values().length];
+
+        Report(int seconds) {
+            this.seconds = seconds;
+            for (Operation operation : Operation.values()) {
+                samples.put(operation, new LatencySamples());
+            }
+        }
+
+        void add(Client client) {
+            for (Operation operation : Operation.values()) {
+                samples.get(operation).addAll(client.samples.get(operation));
+                errors[operation.ordinal()] += client.errors[operation.ordinal()];
+            }
+        }
+
+        void print() {
+            System.out.printf("%d clients, %d rows, %d s measured%n", CLIENTS, ROWS, seconds);
+            System.out.printf("%-8s %9s %9s %9s %9s %9s %9s %7s%n", "op", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+            long total = 0;
+            for (Operation operation : Operation.values()) {
+                LatencySamples latency = samples.get(operation);
+                total += latency.size();
+                System.out.printf("%-8s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d%n", operation.key(), latency.size(),
+                        latency.size() / (double) seconds, millis(latency.percentile(0.5)), millis(latency.percentile(0.99)),
+                        millis(latency.percentile(0.999)), millis(latency.max()), errors[operation.ordinal()]);
+            }
+            System.out.printf("%-8s %9d %9.1f%n", "total", total, total / (double) seconds);
+        }
+
+        List<String> violations(String budget) {
+            List<String> violations = new ArrayList<>();
+            for (Operation operation : Operation.values()) {
+                if (errors[operation.ordinal()] > 0) {
+                    violations.add(operation.key() + ": " + errors[operation.ordinal()] + " unexpected responses");
+                }
+            }
+            for (String entry : budget.split(",")) {
+                Matcher matcher = BUDGET_ENTRY.matcher(entry.trim());
+                if (!matcher.matches()) {
+                    throw new IllegalArgumentException("Bad budget entry: " + entry);
+                }
+                double fraction = matcher.group(2).equals("p50") ? 0.5 : matcher.group(2).equals("p99") ? 0.99 : 0.999;
+                long limitMillis = Long.parseLong(matcher.group(3));
+                for (Operation operation : Operation.values()) {
+                    LatencySamples latency = samples.get(operation);
+                    if (latency.size() == 0 || !(matcher.group(1).equals("*") || matcher.group(1).equals(operation.key()))) {
+                        continue;
+                    }
+                    double actual = millis(latency.percentile(fraction));
+                    if (actual > limitMillis) {
+                        violations.add(String.format("%s %s %.2f ms > %d ms", operation.key(), matcher.group(2), actual, limitMillis));
+                    }
+                }
+            }
+            return violations;
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
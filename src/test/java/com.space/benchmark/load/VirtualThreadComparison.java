@@ -0,0 +1,177 @@
+package com.space.benchmark.load;
+
+import com.space.config.VirtualThreads;
+import com.space.controller.utils.ShipBulkLoader;
+import com.space.controller.utils.ShipDataset;
+import com.space.diagnostics.PoolMetrics;
+import com.space.service.ShipChangeEvent;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Container threads against ships.virtualThreads.enabled at rising client counts. Each client sends list and count
+// requests back to back. With the pool smaller than the container's thread pool, throughput should be bounded by
+// the connection pool in both modes; what changes is where the rest wait: in the connector's queue, or for a
+// connection, where they time out after db.pool.connectionTimeoutMillis.
+//   -Dclients=1000,2500,5000,10000 -DcontainerThreads=200 -Ddb.pool.maxSize=10 -Dmodes=container,virtual
+// The virtual mode needs Java 21; on an older JDK only the container mode runs. Raise the open file limit first.
+// Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.space.benchmark.load.VirtualThreadComparison
+public class VirtualThreadComparison {
+    private static final int ROWS = Integer.getInteger("rows", 20_000);
+    private static final long SEED = Long.getLong("seed", 42);
+    private static final String CLIENTS = System.getProperty("clients", "1000,2500,5000,10000");
+    private static final String MODES = System.getProperty("modes", "container,virtual");
+    private static final int CONTAINER_THREADS = Integer.getInteger("containerThreads", 200);
+    private static final int WARMUP_SECONDS = Integer.getInteger("warmupSeconds", 5);
+    private static final int SECONDS = Integer.getInteger("seconds", 20);
+    private static final String[] TYPES = {"TRANSPORT", "MILITARY", "MERCHANT"};
+
+    public static void main(String[] args) throws Exception {
+        int maxClients = 0;
+        for (String clients : CLIENTS.split(",")) {
+            maxClients = Math.max(maxClients, Integer.parseInt(clients.trim()));
+        }
+        System.setProperty("http.maxConnections", String.valueOf(maxClients));
+        // every request should reach the pool; repeated filters would otherwise be answered from the query cache
+        if (System.getProperty("ships.queryCache.enabled") == null) {
+            System.setProperty("ships.queryCache.enabled", "false");
+        }
+
+        System.out.printf("%-9s %7s %9s %9s %9s %9s %7s %9s %8s %7s%n",
+                "mode", "clients", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "timeouts", "waiters", "active");
+        for (String mode : MODES.split(",")) {
+            boolean virtual = mode.trim().equals("virtual");
+            if (virtual && !VirtualThreads.isSupported()) {
+                System.out.println("virtual   skipped, needs Java 21 (running " + System.getProperty("java.version") + ")");
+                continue;
+            }
+            System.setProperty("ships.virtualThreads.enabled", String.valueOf(virtual));
+            try (EmbeddedCosmoport app = new EmbeddedCosmoport(CONTAINER_THREADS)) {
+                WebApplicationContext context = app.rootContext();
+                new ShipBulkLoader(context.getBean(DataSource.class)).load(new ShipDataset(SEED), 0, ROWS, ShipBulkLoader.Mode.INSERT);
+                context.publishEvent(ShipChangeEvent.reloaded());
+                PoolMetrics pool = context.getBean(PoolMetrics.class);
+
+                for (String clients : CLIENTS.split(",")) {
+                    run(mode.trim(), Integer.parseInt(clients.trim()), app.url("/rest"), pool);
+                }
+            }
+        }
+    }
+
+    private static void run(String mode, int clients, String baseUrl, PoolMetrics pool) throws InterruptedException {
+        long measureFrom = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        long measureUntil = measureFrom + SECONDS * 1_000_000_000L;
+        long timeoutsBefore = pool.getTimeouts();
+        List<Client> started = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService virtualClients = VirtualThreads.isSupported() ? VirtualThreads.newExecutor() : null;
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(baseUrl, measureFrom, measureUntil, done);
+            started.add(client);
+            if (virtualClients != null) {
+                virtualClients.execute(client);
+            } else {
+                Thread thread = new Thread(null, client, "client-" + i, 256 * 1024);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        // waiters and active connections, sampled while the clients run
+        long maxWaiters = 0;
+        long maxActive = 0;
+        while (!done.await(100, TimeUnit.MILLISECONDS)) {
+            Map<String, Object> snapshot = pool.snapshot();
+            maxWaiters = Math.max(maxWaiters, ((Number) snapshot.getOrDefault("waiters", 0)).longValue());
+            maxActive = Math.max(maxActive, ((Number) snapshot.getOrDefault("active", 0)).longValue());
+        }
+        if (virtualClients != null) {
+            virtualClients.shutdown();
+        }
+
+        LatencySamples latency = new LatencySamples();
+        long errors = 0;
+        for (Client client : started) {
+            latency.addAll(client.samples);
+            errors += client.errors.get();
+        }
+        System.out.printf("%-9s %7d %9.1f %9.2f %9.2f %9.2f %7d %9d %8d %7d%n", mode, clients, latency.size() / (double) SECONDS,
+                millis(latency.percentile(0.5)), millis(latency.percentile(0.99)), millis(latency.max()),
+                errors, pool.getTimeouts() - timeoutsBefore, maxWaiters, maxActive);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Client implements Runnable {
+        private final String baseUrl;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final CountDownLatch done;
+        private final LatencySamples samples = new LatencySamples();
+        private final AtomicLong errors = new AtomicLong();
+        private final byte[] chunk = new byte[8192];
+
+        Client(String baseUrl, long measureFrom, long measureUntil, CountDownLatch done) {
+            this.baseUrl = baseUrl;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            try {
+                while (System.nanoTime() < measureUntil) {
+                    String path = random.nextBoolean()
+                            ? "/ships?order=SPEED&pageSize=20&minSpeed=" + random.nextInt(1, 90) / 100.0
+                            : "/ships/count?shipType=" + TYPES[random.nextInt(TYPES.length)];
+                    long start = System.nanoTime();
+                    boolean ok;
+                    try {
+                        ok = get(path) == 200;
+                    } catch (IOException e) {
+                        ok = false;
+                    }
+                    long finish = System.nanoTime();
+                    if (start >= measureFrom && finish <= measureUntil) {
+                        samples.add(finish - start);
+                        if (!ok) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private int get(String path) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    while (in.read(chunk) != -1) {
+                        // drained so that the connection is kept alive
+                    }
+                }
+            }
+            return status;
+        }
+    }
+}
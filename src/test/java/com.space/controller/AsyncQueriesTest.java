@@ -0,0 +1,136 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.service.ShipQueries;
+import com.space.service.ShipService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"ships.async.threads=2", "ships.async.queueCapacity=2"})
+public class AsyncQueriesTest extends AbstractTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicInteger counts = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile Integer searchIsolation;
+    private ShipQueries shipQueries;
+    private ShipService shipService;
+    private ThreadPoolTaskExecutor executor;
+
+    @Before
+    public void observeQueries() {
+        shipQueries = context.getBean(ShipQueries.class);
+        executor = context.getBean("shipQueryExecutor", ThreadPoolTaskExecutor.class);
+        shipService = (ShipService) ReflectionTestUtils.getField(shipQueries, "shipService");
+        ShipService observed = (ShipService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ShipService.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getShipsCount")) {
+                        counts.incrementAndGet();
+                    }
+                    if (method.getName().equals("searchShips")) {
+                        searchIsolation = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+                    }
+                    try {
+                        return method.invoke(shipService, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+        ReflectionTestUtils.setField(shipQueries, "shipService", observed);
+    }
+
+    @After
+    public void restore() throws InterruptedException {
+        release.countDown();
+        ReflectionTestUtils.setField(shipQueries, "shipService", shipService);
+        awaitIdle();
+    }
+
+    //test1
+    @Test
+    public void searchReadsPageAndCountFromOneSnapshot() throws Exception {
+        MvcResult started = mockMvc.perform(get("/rest/ships/search?shipType=MILITARY&pageSize=2")).andReturn();
+        assertTrue("Поток сервлета должен освобождаться на время запросов.", started.getRequest().isAsyncStarted());
+        JsonNode search = mapper.readTree(mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertEquals("Страница и количество должны читаться в одной транзакции REPEATABLE_READ.",
+                Integer.valueOf(Connection.TRANSACTION_REPEATABLE_READ), searchIsolation);
+        assertEquals("Поиск не должен считать количество отдельным запросом.", 0, counts.get());
+        String count = perform(get("/rest/ships/count?shipType=MILITARY")).andReturn().getResponse().getContentAsString();
+        assertEquals(Integer.parseInt(count), search.get("totalCount").asInt());
+        assertEquals(2, search.get("content").size());
+    }
+
+    //test2
+    @Test
+    public void timeoutCancelsTheQueuedQuery() throws Exception {
+        occupyThreads();
+
+        MvcResult started = mockMvc.perform(get("/rest/ships/count?isUsed=false")).andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) started.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isServiceUnavailable());
+
+        release.countDown();
+        awaitIdle();
+        assertEquals("Отменённый запрос не должен выполняться.", 0, counts.get());
+    }
+
+    //test3
+    @Test
+    public void rejectsWhenTheQueueIsFull() throws Exception {
+        occupyThreads();
+        executor.execute(() -> { });
+        executor.execute(() -> { });
+
+        perform(get("/rest/ships/count")).andExpect(status().isServiceUnavailable());
+        perform(get("/rest/ships/7")).andExpect(status().isOk());
+    }
+
+    private void occupyThreads() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(executor.getCorePoolSize());
+        for (int i = 0; i < executor.getCorePoolSize(); i++) {
+            executor.execute(() -> {
+                running.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((executor.getActiveCount() > 0 || !executor.getThreadPoolExecutor().getQueue().isEmpty()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
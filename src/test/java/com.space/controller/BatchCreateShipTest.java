@@ -0,0 +1,98 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BatchCreateShipTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void createsValidItemsAndReportsInvalidOnes() throws Exception {
+        JsonNode results = batch("[" + ship("Batch One", 0.5) + "," + ship("", 0.5) + ","
+                + ship("Batch Two", 1.5) + ",null," + ship("Batch Three", 0.99) + "]");
+
+        assertEquals(5, results.size());
+        int[] statuses = {200, 400, 400, 400, 200};
+        for (int i = 0; i < statuses.length; i++) {
+            assertEquals(i, results.get(i).get("index").asInt());
+            assertEquals("Неверный статус элемента " + i + " в POST /rest/ships/batch.", statuses[i], results.get(i).get("status").asInt());
+        }
+
+        JsonNode first = results.get(0).get("ship");
+        assertEquals(41, first.get("id").asLong());
+        assertEquals(42, results.get(4).get("ship").get("id").asLong());
+        assertEquals("Рейтинг должен вычисляться так же, как при POST /rest/ships.", 8.0, first.get("rating").asDouble(), 0.0);
+        assertEquals(false, first.get("isUsed").asBoolean());
+
+        JsonNode stored = mapper.readTree(perform(get("/rest/ships/41"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals("Batch One", stored.get("name").asText());
+        long storedDay = first.get("prodDate").asLong() - stored.get("prodDate").asLong();
+        assertTrue("prodDate хранится с точностью до дня.", storedDay >= 0 && storedDay < 24 * 60 * 60 * 1000);
+        assertEquals(new TestsHelper().getAllShips().size() + 2, count(""));
+        assertEquals(2, count("?name=Batch"));
+    }
+
+    //test2
+    @Test
+    public void insertsAcrossSeveralJdbcBatches() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 1_234; i++) {
+            body.append(i == 0 ? "" : ",").append(ship("Fleet " + i, 0.01 + (i % 98) / 100.0));
+        }
+        JsonNode results = batch(body.append("]").toString());
+
+        assertEquals(1_234, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(200, results.get(i).get("status").asInt());
+            assertEquals("Идентификаторы должны выдаваться по порядку элементов.", 41 + i, results.get(i).get("ship").get("id").asLong());
+        }
+        assertEquals(1_234, count("?name=Fleet"));
+    }
+
+    //test3
+    @Test
+    public void rejectsOversizedBatch() throws Exception {
+        String body = "[" + String.join(",", Collections.nCopies(10_001, "null")) + "]";
+
+        perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(body))
+                .andExpect(status().isBadRequest());
+        assertTrue(count("") > 0);
+    }
+
+    private JsonNode batch(String body) throws Exception {
+        return mapper.readTree(perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static String ship(String name, double speed) {
+        return "{\"name\":\"" + name + "\",\"planet\":\"Earth\",\"shipType\":\"MILITARY\"," +
+                "\"prodDate\":32998274577071,\"speed\":" + speed + ",\"crewSize\":14}";
+    }
+
+    private int count(String query) throws Exception {
+        return Integer.parseInt(perform(get("/rest/ships/count" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
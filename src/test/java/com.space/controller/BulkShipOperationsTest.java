@@ -0,0 +1,143 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.service.ShipChangeEvent;
+import com.space.service.ShipService;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BulkShipOperationsTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @After
+    public void restoreChunkSize() {
+        setChunkSize(1000);
+    }
+
+    //test1
+    @Test
+    public void updateRecomputesRatingsSetWise() throws Exception {
+        new ShipTableSeeder(context.getBean(DataSource.class)).seed(2_500);
+        context.publishEvent(ShipChangeEvent.reloaded());
+        int matching = count("?planet=Earth");
+        setChunkSize(300);
+
+        JsonNode result = bulk(patch("/rest/ships?planet=Earth").content("{\"speed\":0.37}"));
+
+        assertEquals("PATCH /rest/ships должен вернуть число изменённых кораблей.", matching, result.get("affected").asInt());
+        assertEquals((matching + 299) / 300, result.get("chunks").asInt());
+        assertEquals(matching, count("?planet=Earth&minSpeed=0.37&maxSpeed=0.37"));
+        assertRatings("planet = 'Earth'");
+    }
+
+    //test2
+    @Test
+    public void changedRowsAreNotVisitedTwice() throws Exception {
+        int unused = count("?isUsed=false");
+        int total = count("");
+
+        JsonNode result = bulk(patch("/rest/ships?isUsed=false").content("{\"isUsed\":true}"));
+
+        assertEquals(unused, result.get("affected").asInt());
+        assertEquals(0, count("?isUsed=false"));
+        assertEquals(total, count("?isUsed=true"));
+        assertEquals(0, bulk(patch("/rest/ships?isUsed=false").content("{\"isUsed\":false}")).get("affected").asInt());
+        assertRatings("1 = 1");
+    }
+
+    //test3
+    @Test
+    public void updateOfAllRatingInputsAndOtherFields() throws Exception {
+        int merchants = count("?shipType=MERCHANT");
+
+        JsonNode result = bulk(patch("/rest/ships?shipType=MERCHANT").content("{\"speed\":0.13,\"isUsed\":false," +
+                "\"prodDate\":32998274577071,\"crewSize\":77,\"planet\":\"Pluto\"}"));
+
+        assertEquals(merchants, result.get("affected").asInt());
+        assertEquals(merchants, count("?planet=Pluto&minCrewSize=77&maxCrewSize=77&isUsed=false"));
+        assertRatings("shipType = 'MERCHANT'");
+    }
+
+    //test4
+    @Test
+    public void deleteByFilterInChunks() throws Exception {
+        int total = count("");
+        int military = count("?shipType=MILITARY");
+        setChunkSize(4);
+
+        JsonNode result = bulk(delete("/rest/ships?shipType=MILITARY"));
+
+        assertEquals("DELETE /rest/ships должен вернуть число удалённых кораблей.", military, result.get("affected").asInt());
+        assertEquals((military + 3) / 4, result.get("chunks").asInt());
+        assertEquals(0, count("?shipType=MILITARY"));
+        assertEquals(total - military, count(""));
+    }
+
+    //test5
+    @Test
+    public void rejectsMissingFilterAndInvalidChanges() throws Exception {
+        int total = count("");
+
+        perform(delete("/rest/ships")).andExpect(status().isBadRequest());
+        perform(patch("/rest/ships").contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"speed\":0.5}"))
+                .andExpect(status().isBadRequest());
+        perform(patch("/rest/ships?planet=Earth").contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"speed\":1.5}"))
+                .andExpect(status().isBadRequest());
+        perform(patch("/rest/ships?planet=Earth").contentType(MediaType.APPLICATION_JSON_UTF8).content("{\"rating\":9.0}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(total, count(""));
+        assertEquals(0, count("?minSpeed=0.99&maxSpeed=0.99"));
+    }
+
+    private void assertRatings(String where) {
+        List<Map<String, Object>> rows = new JdbcTemplate(context.getBean(DataSource.class))
+                .queryForList("SELECT id, speed, isUsed, YEAR(prodDate) AS prodYear, rating FROM ship WHERE " + where);
+        for (Map<String, Object> row : rows) {
+            double k = (Boolean) row.get("ISUSED") ? 0.5 : 1;
+            int prodYear = ((Number) row.get("PRODYEAR")).intValue();
+            double speed = (Double) row.get("SPEED");
+            double expected = BigDecimal.valueOf((80 * speed * k) / (3019 - prodYear + 1)).setScale(2, RoundingMode.HALF_UP).doubleValue();
+            assertEquals("Рейтинг корабля " + row.get("ID") + " должен совпадать с вычисленным при POST /rest/ships/{id}.",
+                    expected, (Double) row.get("RATING"), 0.0);
+        }
+    }
+
+    private void setChunkSize(int chunkSize) {
+        ReflectionTestUtils.setField((Object) AopTestUtils.getTargetObject(context.getBean(ShipService.class)), "bulkChunkSize", chunkSize);
+    }
+
+    private JsonNode bulk(MockHttpServletRequestBuilder request) throws Exception {
+        return mapper.readTree(perform(request
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private int count(String query) throws Exception {
+        return Integer.parseInt(perform(get("/rest/ships/count" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
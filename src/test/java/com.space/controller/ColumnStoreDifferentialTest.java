@@ -0,0 +1,279 @@
+package com.space.controller;
+
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipChangeEvent;
+import com.space.service.ShipColumnStore;
+import com.space.service.ShipCursor;
+import com.space.service.ShipFacets;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@TestPropertySource(properties = "ships.columnStore.enabled=true")
+public class ColumnStoreDifferentialTest extends AbstractTest {
+
+    private static final String[] NAMES = {"Seed 1", "Seed 42", "Or", "e", "a_", "%r", "S\\_", "Zz"};
+    private static final String[] PLANETS = {"Mars", "ar", "e", "u%s", "M_rs", "Pluto"};
+
+    private final Random random = new Random(42);
+    private ShipService shipService;
+    private ShipRepository shipRepository;
+    private ShipColumnStore store;
+
+    @Before
+    public void setup() {
+        super.setup();
+        shipService = context.getBean(ShipService.class);
+        shipRepository = context.getBean(ShipRepository.class);
+        store = context.getBean(ShipColumnStore.class);
+        new ShipTableSeeder(context.getBean(DataSource.class)).seed(5_000);
+        context.publishEvent(ShipChangeEvent.reloaded());
+    }
+
+    //test1
+    @Test
+    public void storeMatchesJpaForRandomFiltersOrdersAndPages() {
+        for (int i = 0; i < 300; i++) {
+            assertSameResults(randomFilter());
+        }
+    }
+
+    //test2
+    @Test
+    public void storeFollowsWritesThroughService() {
+        for (int i = 0; i < 20; i++) {
+            Ship ship = new Ship();
+            ship.setName("Seed write " + i);
+            ship.setPlanet(i % 2 == 0 ? "Mars" : "Eris");
+            ship.setShipType(ShipType.values()[i % 3]);
+            ship.setProdDate(new GregorianCalendar(2900 + i, Calendar.MARCH, 3).getTime());
+            ship.setUsed(i % 3 == 0);
+            ship.setSpeed(0.04 * (i + 1));
+            ship.setCrewSize(100 + i);
+            Ship created = shipService.createShip(ship);
+
+            Ship update = new Ship();
+            update.setSpeed(0.9);
+            update.setProdDate(new GregorianCalendar(3010, Calendar.JANUARY, 1).getTime());
+            shipService.updateShip(created.getId() - 1, update);
+
+            if (i % 4 == 0) {
+                shipService.deleteShip(created.getId() - 7);
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertSameResults(randomFilter());
+        }
+    }
+
+    //test3
+    @Test
+    public void patchRefreshesOnlyThePatchedRow() {
+        store.count(randomFilter());
+        long generation = ((AtomicLong) ReflectionTestUtils.getField(store, "requestedGeneration")).get();
+
+        for (int i = 0; i < 30; i++) {
+            Ship changes = new Ship();
+            switch (i % 4) {
+                case 0:
+                    changes.setSpeed(0.01 * (1 + random.nextInt(99)));
+                    break;
+                case 1:
+                    changes.setUsed(random.nextBoolean());
+                    changes.setPlanet(PLANETS[random.nextInt(PLANETS.length)]);
+                    break;
+                case 2:
+                    changes.setProdDate(new Date(randomMillis()));
+                    changes.setShipType(ShipType.values()[random.nextInt(ShipType.values().length)]);
+                    break;
+                default:
+                    changes.setName(NAMES[random.nextInt(NAMES.length)]);
+                    changes.setCrewSize(1 + random.nextInt(9_999));
+            }
+            shipService.patchShip(1L + random.nextInt(5_000), null, changes);
+        }
+
+        assertEquals("PATCH не должен перечитывать всю таблицу в колоночное хранилище.", generation,
+                ((AtomicLong) ReflectionTestUtils.getField(store, "requestedGeneration")).get());
+        for (int i = 0; i < 100; i++) {
+            assertSameResults(randomFilter());
+        }
+    }
+
+    //test4
+    @Test
+    public void disabledStoreDoesNotGrowWithWrites() {
+        ShipColumnStore disabled = new ShipColumnStore(context.getBean(DataSource.class), false, false);
+        ShipFilter all = new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+        assertEquals(5_040, disabled.count(all));
+
+        Ship ship = shipRepository.findById(1L).get();
+        for (int i = 0; i < 2_000; i++) {
+            disabled.onShipChange(ShipChangeEvent.created(ship));
+        }
+        assertEquals("Выключенное хранилище не должно копить строки на каждую запись.", 5_040,
+                ReflectionTestUtils.getField(disabled, "size"));
+        assertEquals(5_040, disabled.count(all));
+    }
+
+    //test5
+    @Test
+    public void deadRowsAreCompactedByReload() {
+        ShipFilter all = new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+        assertEquals(5_040, store.count(all));
+        long generation = ((AtomicLong) ReflectionTestUtils.getField(store, "requestedGeneration")).get();
+
+        for (long id = 1; id <= 3_000; id++) {
+            store.onShipChange(ShipChangeEvent.deleted(shipRepository.findById(id).get()));
+        }
+        assertEquals("Когда больше половины строк удалены, хранилище должно перечитаться.", generation + 1,
+                ((AtomicLong) ReflectionTestUtils.getField(store, "requestedGeneration")).get());
+
+        // the rows are still in the table, so the reload brings them back and drops the dead ones
+        assertEquals(5_040, store.count(all));
+        assertEquals(5_040, ReflectionTestUtils.getField(store, "size"));
+        assertEquals(0, ReflectionTestUtils.getField(store, "deadRows"));
+    }
+
+    //test6
+    @Test
+    public void cursorsOnRowsWithoutSortValueSeekLikeJpa() {
+        new JdbcTemplate(context.getBean(DataSource.class))
+                .update("UPDATE ship SET speed = NULL, prodDate = NULL, rating = NULL WHERE MOD(id, 97) = 0");
+        context.publishEvent(ShipChangeEvent.reloaded());
+        ShipFilter all = new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+
+        for (ShipOrder order : Arrays.asList(ShipOrder.SPEED, ShipOrder.DATE, ShipOrder.RATING)) {
+            for (long id = 97; id <= 5_040; id += 97 * 7) {
+                ShipCursor cursor = ShipCursor.decode(ShipCursor.of(shipRepository.findById(id).get(), order.getFieldName()).encode(),
+                        order.getFieldName());
+                assertNull(cursor.getValue());
+                assertEquals("Keyset-страница после пустого значения отличается от JPA: " + order + " id=" + id,
+                        rows(shipRepository.findAll(shipService.selectAfter(cursor), order.getSort(), 60)),
+                        rows(store.findAfter(all, order.getSort(), cursor, 60)));
+            }
+        }
+    }
+
+    private void assertSameResults(ShipFilter filter) {
+        Specification<Ship> specification = shipService.selectByFilter(filter);
+        String context = describe(filter);
+        assertEquals("Количество в колоночном хранилище отличается от JPA: " + context,
+                shipRepository.count(specification), store.count(filter));
+
+        ShipFacets expectedFacets = ShipFacets.of(shipRepository.findFacetGroups(specification));
+        ShipFacets actualFacets = store.facets(filter);
+        assertEquals("Фасеты колоночного хранилища отличаются от SQL: " + context,
+                Arrays.asList(expectedFacets.getTotalCount(), expectedFacets.getShipType(), expectedFacets.getPlanet(),
+                        expectedFacets.getProdYear(), expectedFacets.getIsUsed()),
+                Arrays.asList(actualFacets.getTotalCount(), actualFacets.getShipType(), actualFacets.getPlanet(),
+                        actualFacets.getProdYear(), actualFacets.getIsUsed()));
+        assertSameRange(expectedFacets.getSpeed(), actualFacets.getSpeed());
+        assertSameRange(expectedFacets.getCrewSize(), actualFacets.getCrewSize());
+        assertSameRange(expectedFacets.getRating(), actualFacets.getRating());
+
+        ShipOrder order = ShipOrder.values()[random.nextInt(ShipOrder.values().length)];
+        int pageSize = 1 + random.nextInt(20);
+        int total = (int) shipRepository.count(specification);
+        int pageNumber = random.nextInt(Math.max(1, (total + pageSize - 1) / pageSize + 1));
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, order.getSort());
+
+        Page<Ship> expected = shipRepository.findAll(specification, pageable);
+        Page<Ship> actual = store.findPage(filter, pageable);
+        assertEquals("Страница колоночного хранилища отличается от JPA: " + order + " " + context,
+                rows(expected.getContent()), rows(actual.getContent()));
+        assertEquals(expected.getTotalElements(), actual.getTotalElements());
+
+        if (expected.hasContent()) {
+            ShipCursor cursor = ShipCursor.of(expected.getContent().get(expected.getNumberOfElements() - 1), order.getFieldName());
+            assertEquals("Keyset-страница колоночного хранилища отличается от JPA: " + order + " " + context,
+                    rows(shipRepository.findAll(specification.and(shipService.selectAfter(cursor)), order.getSort(), pageSize)),
+                    rows(store.findAfter(filter, order.getSort(), cursor, pageSize)));
+        }
+    }
+
+    private static void assertSameRange(ShipFacets.Range expected, ShipFacets.Range actual) {
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        if (expected.getAvg() == null) {
+            assertNull(actual.getAvg());
+        } else {
+            // the same sum in a different order
+            assertEquals(expected.getAvg(), actual.getAvg(), 1e-9);
+        }
+    }
+
+    private ShipFilter randomFilter() {
+        Long after = maybe() ? randomMillis() : null;
+        Long before = maybe() ? randomMillis() : null;
+        Double minSpeed = maybe() ? random.nextInt(100) / 100.0 : null;
+        Double maxSpeed = maybe() ? random.nextInt(100) / 100.0 : null;
+        Integer minCrewSize = maybe() ? random.nextInt(10_000) : null;
+        Integer maxCrewSize = maybe() ? random.nextInt(10_000) : null;
+        Double minRating = maybe() ? random.nextInt(2_000) / 100.0 : null;
+        Double maxRating = maybe() ? random.nextInt(2_000) / 100.0 : null;
+        return new ShipFilter(
+                maybe() ? NAMES[random.nextInt(NAMES.length)] : null,
+                maybe() ? PLANETS[random.nextInt(PLANETS.length)] : null,
+                maybe() ? ShipType.values()[random.nextInt(ShipType.values().length)] : null,
+                after, before,
+                maybe() ? random.nextBoolean() : null,
+                minSpeed, maxSpeed, minCrewSize, maxCrewSize, minRating, maxRating);
+    }
+
+    private boolean maybe() {
+        return random.nextInt(3) == 0;
+    }
+
+    // any instant in 2800..3019, not only midnights, to exercise the DATE-vs-timestamp bounds
+    private long randomMillis() {
+        long from = new GregorianCalendar(2800, Calendar.JANUARY, 1).getTimeInMillis();
+        long to = new GregorianCalendar(3020, Calendar.JANUARY, 1).getTimeInMillis();
+        return from + (long) (random.nextDouble() * (to - from));
+    }
+
+    private static List<String> rows(List<Ship> ships) {
+        return ships.stream()
+                .map(ship -> ship.getId() + "|" + ship.getName() + "|" + ship.getPlanet() + "|" + ship.getShipType()
+                        + "|" + time(ship.getProdDate()) + "|" + ship.getUsed() + "|" + ship.getSpeed()
+                        + "|" + ship.getCrewSize() + "|" + ship.getRating())
+                .collect(Collectors.toList());
+    }
+
+    private static Long time(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    private static String describe(ShipFilter filter) {
+        return "name=" + filter.getName() + ", planet=" + filter.getPlanet() + ", shipType=" + filter.getShipType()
+                + ", after=" + filter.getAfter() + ", before=" + filter.getBefore() + ", isUsed=" + filter.getUsed()
+                + ", speed=" + filter.getMinSpeed() + ".." + filter.getMaxSpeed()
+                + ", crewSize=" + filter.getMinCrewSize() + ".." + filter.getMaxCrewSize()
+                + ", rating=" + filter.getMinRating() + ".." + filter.getMaxRating();
+    }
+}
@@ -0,0 +1,130 @@
+package com.space.controller;
+
+import com.space.service.ShipChangeEvent;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ConditionalGetTest extends AbstractTest {
+
+    private Statistics statistics;
+
+    @Before
+    public void setup() {
+        super.setup();
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    //test1
+    @Test
+    public void shipETagAnswersWithoutHibernate() throws Exception {
+        String etag = etag(perform(get("/rest/ships/1")).andExpect(status().isOk()).andReturn());
+        assertEquals("\"1.0\"", etag);
+
+        long sessions = statistics.getSessionOpenCount();
+        perform(get("/rest/ships/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        assertEquals("Ответ 304 не должен открывать сессию Hibernate.", sessions, statistics.getSessionOpenCount());
+    }
+
+    //test2
+    @Test
+    public void shipETagChangesWithEveryWrite() throws Exception {
+        String etag = etag(perform(get("/rest/ships/1")).andReturn());
+
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Orion IV\"}"))
+                .andExpect(status().isOk());
+        MvcResult updated = perform(get("/rest/ships/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("\"1.1\"", etag(updated));
+        assertTrue(updated.getResponse().getContentAsString().contains("Orion IV"));
+
+        perform(patch("/rest/ships?name=Orion")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"crewSize\":5}"))
+                .andExpect(status().isOk());
+        assertEquals("Массовое обновление должно увеличивать версию.", "\"1.2\"",
+                etag(perform(get("/rest/ships/1").header(HttpHeaders.IF_NONE_MATCH, etag(updated)))
+                        .andExpect(status().isOk()).andReturn()));
+    }
+
+    //test3
+    @Test
+    public void unknownVersionIsLoadedOnceThenRemembered() throws Exception {
+        String etag = etag(perform(get("/rest/ships/2")).andReturn());
+        context.publishEvent(ShipChangeEvent.reloaded());
+        awaitShipLoader();
+
+        perform(get("/rest/ships/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        long sessions = statistics.getSessionOpenCount();
+        perform(get("/rest/ships/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(sessions, statistics.getSessionOpenCount());
+    }
+
+    //test4
+    @Test
+    public void listAndCountShareWeakGenerationETag() throws Exception {
+        String listTag = etag(perform(get("/rest/ships?planet=Earth")).andExpect(status().isOk()).andReturn());
+        String countTag = etag(perform(get("/rest/ships/count")).andExpect(status().isOk()).andReturn());
+        assertTrue(listTag, listTag.startsWith("W/\""));
+        assertEquals(listTag, countTag);
+
+        long sessions = statistics.getSessionOpenCount();
+        perform(get("/rest/ships?planet=Earth").header(HttpHeaders.IF_NONE_MATCH, listTag))
+                .andExpect(status().isNotModified());
+        perform(get("/rest/ships/count").header(HttpHeaders.IF_NONE_MATCH, countTag))
+                .andExpect(status().isNotModified());
+        perform(get("/rest/ships/search").header(HttpHeaders.IF_NONE_MATCH, countTag))
+                .andExpect(status().isNotModified());
+        assertEquals("Ответ 304 не должен открывать сессию Hibernate.", sessions, statistics.getSessionOpenCount());
+
+        perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Ares\",\"planet\":\"Earth\",\"shipType\":\"MILITARY\"," +
+                        "\"prodDate\":32998274577071,\"speed\":0.8,\"crewSize\":14}"))
+                .andExpect(status().isOk());
+        String newTag = etag(perform(get("/rest/ships/count").header(HttpHeaders.IF_NONE_MATCH, countTag))
+                .andExpect(status().isOk()).andReturn());
+        assertNotEquals("После записи weak ETag списка должен измениться.", countTag, newTag);
+    }
+
+    //test5
+    @Test
+    public void outOfBandWriteInvalidatesAfterReload() throws Exception {
+        String shipTag = etag(perform(get("/rest/ships/3")).andReturn());
+        String listTag = etag(perform(get("/rest/ships")).andReturn());
+
+        new JdbcTemplate(context.getBean(DataSource.class)).update("UPDATE ship SET name = 'Eagle', version = version + 1 WHERE id = 3");
+        context.publishEvent(ShipChangeEvent.reloaded());
+
+        perform(get("/rest/ships/3").header(HttpHeaders.IF_NONE_MATCH, shipTag)).andExpect(status().isOk());
+        perform(get("/rest/ships").header(HttpHeaders.IF_NONE_MATCH, listTag)).andExpect(status().isOk());
+    }
+
+    private static String etag(MvcResult result) {
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,78 @@
+package com.space.controller;
+
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.controller.utils.TestsHelper;
+import com.space.service.ShipChangeEvent;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetCountScalingTest extends AbstractTest {
+
+    private Statistics statistics;
+    private ShipTableSeeder seeder;
+
+    @Before
+    public void setup() {
+        super.setup();
+        seeder = new ShipTableSeeder(context.getBean(DataSource.class));
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    public void countNeverMaterializesShipsAsTableGrows() throws Exception {
+        int expected = new TestsHelper().getAllShips().size();
+
+        for (int rows : new int[]{1_000, 10_000, 50_000}) {
+            seeder.seed(rows);
+            expected += rows;
+            context.publishEvent(ShipChangeEvent.reloaded());
+
+            assertEquals("Неверное количество кораблей при запросе GET /rest/ships/count.", expected, count(""));
+            assertEquals("GET /rest/ships/count не должен загружать сущности Ship.", 0, statistics.getEntityLoadCount());
+            assertEquals("GET /rest/ships/count не должен загружать сущности Ship.", 0, statistics.getEntityFetchCount());
+        }
+    }
+
+    @Test
+    public void countIsCachedPerFilterAndInvalidatedByWrites() throws Exception {
+        int all = count("");
+        int merchants = count("?shipType=MERCHANT");
+        long queries = statistics.getQueryExecutionCount();
+        assertNotEquals(0, queries);
+
+        assertEquals(all, count(""));
+        assertEquals(merchants, count("?shipType=MERCHANT"));
+        assertEquals("Повторный запрос с тем же фильтром должен обслуживаться из кэша.", queries, statistics.getQueryExecutionCount());
+
+        perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+
+        assertEquals("Кэш должен сбрасываться после создания корабля.", all + 1, count(""));
+        assertEquals(merchants, count("?shipType=MERCHANT"));
+    }
+
+    private int count(String query) throws Exception {
+        String content = perform(get("/rest/ships/count" + query)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
@@ -0,0 +1,189 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.service.ShipChangeEvent;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class KeysetPaginationTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void cursorWalkVisitsEveryShipOnceForEveryOrder() throws Exception {
+        for (ShipOrder order : ShipOrder.values()) {
+            List<ShipInfoTest> expected = sorted(testsHelper.getAllShips(), order);
+            List<ShipInfoTest> actual = walk("order=" + order + "&pageSize=7");
+
+            assertEquals("Неверный порядок при постраничном обходе по курсору, order=" + order, expected, actual);
+        }
+    }
+
+    //test2
+    @Test
+    public void cursorWalkAppliesFilters() throws Exception {
+        List<ShipInfoTest> expected = sorted(testsHelper.getShipInfosByIsUsed(false,
+                testsHelper.getShipInfosByMinSpeed(0.3, testsHelper.getAllShips())), ShipOrder.RATING);
+
+        assertEquals(expected, walk("isUsed=false&minSpeed=0.3&order=RATING&pageSize=4"));
+    }
+
+    //test3
+    @Test
+    public void cursorWalkIsStableWhenShipsAreInsertedConcurrently() throws Exception {
+        MockHttpServletResponse first = page("order=SPEED&pageSize=5&cursor=");
+        List<ShipInfoTest> seen = new ArrayList<>(read(first));
+        String cursor = first.getHeader(ShipController.NEXT_CURSOR_HEADER);
+
+        // one ship sorts before the cursor and must not appear, one sorts after it and must
+        create(0.01);
+        create(0.99);
+
+        while (cursor != null) {
+            MockHttpServletResponse response = page("order=SPEED&pageSize=5&cursor=" + cursor);
+            seen.addAll(read(response));
+            cursor = response.getHeader(ShipController.NEXT_CURSOR_HEADER);
+        }
+
+        Set<Long> ids = seen.stream().map(s -> s.id).collect(Collectors.toSet());
+        assertEquals("Курсор не должен возвращать корабль дважды.", seen.size(), ids.size());
+        for (ShipInfoTest ship : testsHelper.getAllShips()) {
+            assertTrue("Курсор пропустил корабль " + ship, ids.contains(ship.id));
+        }
+        assertEquals(testsHelper.getAllShips().size() + 1, seen.size());
+        assertEquals(Double.valueOf(0.99), seen.get(seen.size() - 1).speed);
+    }
+
+    //test4
+    @Test
+    public void searchNextCursorContinuesWithSecondPage() throws Exception {
+        JsonNode firstPage = mapper.readTree(perform(get("/rest/ships/search?order=DATE&pageSize=3")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        JsonNode secondPage = mapper.readTree(perform(get("/rest/ships/search?order=DATE&pageSize=3&pageNumber=1")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        MockHttpServletResponse response = page("order=DATE&pageSize=3&cursor=" + firstPage.get("nextCursor").asText());
+
+        assertEquals(secondPage.get("content"), mapper.readTree(response.getContentAsString()));
+    }
+
+    //test5
+    @Test
+    public void lastPageHasNoNextCursor() throws Exception {
+        assertNull(page("pageSize=40&cursor=").getHeader(ShipController.NEXT_CURSOR_HEADER));
+    }
+
+    //test6
+    @Test
+    public void invalidCursorIsBadRequest() throws Exception {
+        String speedCursor = page("order=SPEED&pageSize=3&cursor=").getHeader(ShipController.NEXT_CURSOR_HEADER);
+
+        perform(get("/rest/ships?order=RATING&cursor=" + speedCursor))
+                .andExpect(status().isBadRequest());
+        perform(get("/rest/ships?cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        perform(get("/rest/ships?cursor=&pageSize=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test7
+    @Test
+    public void cursorWalkPassesRowsWithoutSortValue() throws Exception {
+        new JdbcTemplate(context.getBean(DataSource.class))
+                .update("UPDATE ship SET speed = NULL, prodDate = NULL, rating = NULL WHERE id IN (3, 7, 20)");
+        context.publishEvent(ShipChangeEvent.reloaded());
+
+        for (ShipOrder order : Arrays.asList(ShipOrder.SPEED, ShipOrder.DATE, ShipOrder.RATING)) {
+            List<Long> ids = walk("order=" + order + "&pageSize=2").stream().map(s -> s.id).collect(Collectors.toList());
+
+            assertEquals("Корабли без значения поля сортировки идут первыми, order=" + order,
+                    Arrays.asList(3L, 7L, 20L), ids.subList(0, 3));
+            assertEquals("Курсор должен пройти мимо пустых значений, order=" + order, 40, new HashSet<>(ids).size());
+            assertEquals(40, ids.size());
+        }
+    }
+
+    private List<ShipInfoTest> walk(String query) throws Exception {
+        List<ShipInfoTest> result = new ArrayList<>();
+        String cursor = "";
+        Set<String> cursors = new HashSet<>();
+        while (cursor != null) {
+            assertTrue("Курсор не должен повторяться.", cursors.add(cursor));
+            MockHttpServletResponse response = page(query + "&cursor=" + cursor);
+            result.addAll(read(response));
+            cursor = response.getHeader(ShipController.NEXT_CURSOR_HEADER);
+        }
+        return result;
+    }
+
+    private MockHttpServletResponse page(String query) throws Exception {
+        return perform(get("/rest/ships?" + query)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    private List<ShipInfoTest> read(MockHttpServletResponse response) throws Exception {
+        return mapper.readValue(response.getContentAsString(), typeReference);
+    }
+
+    private void create(double speed) throws Exception {
+        perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(String.format(Locale.US, "{\"name\":\"Probe\",\"planet\":\"Pluto\",\"shipType\":\"TRANSPORT\"," +
+                        "\"prodDate\":32998274577071,\"isUsed\":false,\"speed\":%s,\"crewSize\":5}", speed)))
+                .andExpect(status().isOk());
+    }
+
+    private static List<ShipInfoTest> sorted(List<ShipInfoTest> ships, ShipOrder order) {
+        Function<ShipInfoTest, Comparable> key;
+        switch (order) {
+            case SPEED:
+                key = s -> s.speed;
+                break;
+            case DATE:
+                key = s -> s.prodDate;
+                break;
+            case RATING:
+                key = s -> s.rating;
+                break;
+            default:
+                key = s -> s.id;
+        }
+        @SuppressWarnings("unchecked")
+        Comparator<ShipInfoTest> comparator = Comparator.comparing(s -> key.apply(s));
+        return ships.stream().sorted(comparator.thenComparing(s -> s.id)).collect(Collectors.toList());
+    }
+}
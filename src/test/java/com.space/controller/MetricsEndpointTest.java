@@ -0,0 +1,141 @@
+package com.space.controller;
+
+import com.space.diagnostics.LatencyHistogram;
+import com.space.diagnostics.MethodTimer;
+import com.space.diagnostics.MetricsRegistry;
+import com.space.diagnostics.PoolMetrics;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.LongUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class MetricsEndpointTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void countsResponsesByHandlerAndStatus() throws Exception {
+        String handler = "handler=\"ShipController.getShipById\"";
+        long ok = value(scrape(), "cosmoport_http_requests_total{" + handler + ",status=\"200\"}");
+        long badRequest = value(scrape(), "cosmoport_http_requests_total{" + handler + ",status=\"400\"}");
+        long notFound = value(scrape(), "cosmoport_http_requests_total{" + handler + ",status=\"404\"}");
+
+        perform(get("/rest/ships/1")).andExpect(status().isOk());
+        perform(get("/rest/ships/2")).andExpect(status().isOk());
+        perform(get("/rest/ships/0")).andExpect(status().isBadRequest());
+        perform(get("/rest/ships/999")).andExpect(status().isNotFound());
+
+        String metrics = scrape();
+        assertEquals("Успешные ответы должны считаться по методу контроллера.", ok + 2,
+                value(metrics, "cosmoport_http_requests_total{" + handler + ",status=\"200\"}"));
+        assertEquals("BadRequestException должен считаться как 400.", badRequest + 1,
+                value(metrics, "cosmoport_http_requests_total{" + handler + ",status=\"400\"}"));
+        assertEquals("NotFoundException должен считаться как 404.", notFound + 1,
+                value(metrics, "cosmoport_http_requests_total{" + handler + ",status=\"404\"}"));
+        assertTrue(value(metrics, "cosmoport_http_request_duration_seconds_count{" + handler + "}") >= ok + 4);
+    }
+
+    //test2
+    @Test
+    public void timesServiceAndRepositoryCalls() throws Exception {
+        String service = "cosmoport_method_duration_seconds_count{layer=\"service\",method=\"ShipService.getShipsPage\"}";
+        String repository = "cosmoport_method_duration_seconds_count{layer=\"repository\",method=\"ShipRepository.findPage\"}";
+        long serviceBefore = value(scrape(), service);
+        long repositoryBefore = value(scrape(), repository);
+
+        perform(get("/rest/ships?pageSize=5")).andExpect(status().isOk());
+
+        String metrics = scrape();
+        assertEquals("Вызовы сервиса должны измеряться.", serviceBefore + 1, value(metrics, service));
+        assertEquals("Вызовы репозитория должны измеряться.", repositoryBefore + 1, value(metrics, repository));
+    }
+
+    //test3
+    @Test
+    public void histogramsAreCumulativeAndEndWithTheCount() throws Exception {
+        perform(get("/rest/ships/count")).andExpect(status().isOk());
+
+        MvcResult result = perform(get("/rest/diagnostics/metrics")).andExpect(status().isOk()).andReturn();
+        assertEquals(MetricsRegistry.CONTENT_TYPE, result.getResponse().getContentType().toLowerCase().replace(";charset", "; charset"));
+        String metrics = result.getResponse().getContentAsString();
+
+        Matcher buckets = Pattern.compile("cosmoport_http_request_duration_seconds_bucket\\{handler=\"ShipController.getCount\",le=\"([^\"]+)\"} (\\d+)")
+                .matcher(metrics);
+        long previous = 0;
+        int seen = 0;
+        while (buckets.find()) {
+            long cumulative = Long.parseLong(buckets.group(2));
+            assertTrue("Бакеты гистограммы должны быть накопительными.", cumulative >= previous);
+            previous = cumulative;
+            seen++;
+        }
+        assertEquals(LatencyHistogram.exportedBoundsMicros().length + 1, seen);
+        assertEquals(value(metrics, "cosmoport_http_request_duration_seconds_count{handler=\"ShipController.getCount\"}"), previous);
+    }
+
+    //test4
+    @Test
+    public void timingOverheadStaysBounded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i * 997L);
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1_000_000; i++) {
+            histogram.record(i * 997L);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        assertTrue("Запись в гистограмму не должна выделять память: " + allocated + " байт", allocated < 64 * 1024);
+
+        LongUnaryOperator target = value -> value + 1;
+        ProxyFactory plain = new ProxyFactory(target);
+        plain.addInterface(LongUnaryOperator.class);
+        ProxyFactory timed = new ProxyFactory(target);
+        timed.addInterface(LongUnaryOperator.class);
+        timed.addAdvice(new MethodTimer(new MetricsRegistry(new PoolMetrics()), "service", LongUnaryOperator.class));
+
+        LongUnaryOperator plainProxy = (LongUnaryOperator) plain.getProxy();
+        LongUnaryOperator timedProxy = (LongUnaryOperator) timed.getProxy();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long overhead = nanosPerCall(timedProxy) - nanosPerCall(plainProxy);
+            best = Math.min(best, overhead);
+        }
+        assertTrue("Измерение вызова не должно стоить больше 2 мкс: " + best + " нс", best < 2_000);
+    }
+
+    private static long nanosPerCall(LongUnaryOperator operator) {
+        int calls = 200_000;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += operator.applyAsLong(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        return sink == 42 ? 0 : elapsed / calls;
+    }
+
+    private String scrape() throws Exception {
+        return perform(get("/rest/diagnostics/metrics")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private static long value(String metrics, String series) {
+        for (String line : metrics.split("\n")) {
+            if (line.startsWith(series + " ")) {
+                return Long.parseLong(line.substring(series.length() + 1));
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,168 @@
+package com.space.controller;
+
+import com.space.config.VirtualThreads;
+import com.space.service.ShipService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// ShipController handlers on an executor, as with ships.virtualThreads.enabled; platform threads stand in for
+// virtual ones, which the build JDK may not have.
+public class OffloadedHandlersTest extends AbstractTest {
+    private final AtomicInteger offloaded = new AtomicInteger();
+    private OffloadingHandlerAdapter adapter;
+
+    @Before
+    public void offload() {
+        adapter = context.getBean(OffloadingHandlerAdapter.class);
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("offloaded-") {
+            @Override
+            public void execute(Runnable task, long startTimeout) {
+                offloaded.incrementAndGet();
+                super.execute(task, startTimeout);
+            }
+        };
+        adapter.setOffloadExecutor(executor, ShipController.class);
+    }
+
+    @After
+    public void restore() {
+        adapter.setOffloadExecutor(null);
+        adapter.setOffloadTimeout(context.getEnvironment().getProperty("ships.virtualThreads.timeoutMillis", Long.class));
+    }
+
+    //test1
+    @Test
+    public void answersLikeTheContainerThread() throws Exception {
+        String ship = offloaded(get("/rest/ships/7")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        String bulk = "/rest/ships?name=no such ship";
+        String deleted = offloaded(delete(bulk)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertEquals("Обработчики должны выполняться на отдельном исполнителе.", 2, offloaded.get());
+
+        // list and count answer with a DeferredResult of their own and stay where they are
+        offloaded(get("/rest/ships?order=SPEED&pageSize=7")).andExpect(status().isOk());
+        assertEquals("Асинхронные обработчики не должны переноситься повторно.", 2, offloaded.get());
+
+        adapter.setOffloadExecutor(null);
+        MvcResult direct = mockMvc.perform(get("/rest/ships/7")).andExpect(status().isOk()).andReturn();
+        assertFalse(direct.getRequest().isAsyncStarted());
+        assertEquals("Ответ должен совпадать с синхронным.", direct.getResponse().getContentAsString(), ship);
+        mockMvc.perform(delete(bulk)).andExpect(content().string(deleted));
+    }
+
+    //test2
+    @Test
+    public void mapsExceptionsAndConditionalRequests() throws Exception {
+        offloaded(get("/rest/ships/0")).andExpect(status().isBadRequest());
+        offloaded(get("/rest/ships/999")).andExpect(status().isNotFound());
+        offloaded(post("/rest/ships").contentType(MediaType.APPLICATION_JSON).content("{}")).andExpect(status().isBadRequest());
+
+        String etag = offloaded(get("/rest/ships/1")).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        offloaded(get("/rest/ships/1").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+    }
+
+    //test3
+    @Test
+    public void recordsEachRequestOnce() throws Exception {
+        String series = "cosmoport_http_requests_total{handler=\"ShipController.getCount\",status=\"200\"}";
+        long before = value(series);
+
+        offloaded(get("/rest/ships/count")).andExpect(status().isOk());
+
+        assertEquals("Асинхронный запрос должен учитываться в метриках один раз.", before + 1, value(series));
+    }
+
+    //test4
+    @Test
+    public void createsVirtualThreadsWhenTheJdkHasThem() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            try {
+                VirtualThreads.newExecutor();
+                fail("Без виртуальных потоков режим должен отказываться запускаться.");
+            } catch (IllegalStateException expected) {
+                return;
+            }
+        }
+        ExecutorService executor = VirtualThreads.newExecutor();
+        try {
+            Future<Boolean> virtual = executor.submit(() -> VirtualThreads.isVirtual(Thread.currentThread()));
+            assertTrue(virtual.get());
+            assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //test5
+    @Test
+    public void longRunningHandlersOutliveTheTimeout() throws Exception {
+        long timeout = 100;
+        adapter.setOffloadTimeout(timeout);
+        ShipController controller = context.getBean(ShipController.class);
+        ShipService shipService = context.getBean(ShipService.class);
+        controller.setShipService((ShipService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ShipService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("exportShips")) {
+                        Thread.sleep(timeout * 3);
+                    }
+                    try {
+                        return method.invoke(shipService, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+        try {
+            MvcResult export = mockMvc.perform(get("/rest/ships/export")).andReturn();
+            assertTrue("Медленная выгрузка не должна ограничиваться временем ожидания.",
+                    ((MockAsyncContext) export.getRequest().getAsyncContext()).getTimeout() <= 0);
+            MvcResult done = mockMvc.perform(asyncDispatch(export)).andExpect(status().isOk()).andReturn();
+            assertEquals(40, done.getResponse().getContentAsString().split("\n").length);
+
+            MvcResult ship = mockMvc.perform(get("/rest/ships/7")).andReturn();
+            assertEquals("Обычные обработчики должны получать заданное время ожидания.",
+                    timeout, ((MockAsyncContext) ship.getRequest().getAsyncContext()).getTimeout());
+            mockMvc.perform(asyncDispatch(ship)).andExpect(status().isOk());
+        } finally {
+            controller.setShipService(shipService);
+        }
+    }
+
+    private ResultActions offloaded(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request).andReturn();
+        assertTrue("Обработка должна продолжаться асинхронно.", started.getRequest().isAsyncStarted());
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private long value(String series) throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/diagnostics/metrics")).andReturn();
+        assertFalse("Другие контроллеры должны оставаться синхронными.", result.getRequest().isAsyncStarted());
+        Matcher matcher = Pattern.compile(Pattern.quote(series) + " (\\d+)").matcher(result.getResponse().getContentAsString());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+}
@@ -0,0 +1,137 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PatchShipTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void patchIsOneUpdateAndRecomputesRating() throws Exception {
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        long statements = statistics.getPrepareStatementCount();
+
+        MvcResult result = perform(patch("/rest/ships/1")
+                .header(HttpHeaders.IF_MATCH, "\"1.0\"")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"speed\":0.5,\"isUsed\":false,\"name\":\"Orion Patched\"}"))
+                .andExpect(status().isNoContent())
+                .andReturn();
+
+        assertEquals("PATCH /rest/ships/{id} должен выполняться блокирующим чтением строки и одним UPDATE.",
+                statements + 2, statistics.getPrepareStatementCount());
+        assertEquals("\"1.1\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+        JsonNode ship = getShip(1);
+        assertEquals("Orion Patched", ship.get("name").asText());
+        assertEquals("Рейтинг должен пересчитываться при PATCH.", 1.6, ship.get("rating").asDouble(), 0.0);
+        assertEquals(1, count("?name=Patched"));
+    }
+
+    //test2
+    @Test
+    public void staleVersionIsConflict() throws Exception {
+        patchShip(1, "\"1.0\"", "{\"crewSize\":10}").andExpect(status().isNoContent());
+
+        patchShip(1, "\"1.0\"", "{\"crewSize\":20}").andExpect(status().isConflict());
+        patchShip(1, "\"2.1\"", "{\"crewSize\":20}").andExpect(status().isConflict());
+        patchShip(1, "1.1", "{\"crewSize\":20}").andExpect(status().isBadRequest());
+        patchShip(1, "*", "{\"crewSize\":0}").andExpect(status().isBadRequest());
+        patchShip(999, "\"999.0\"", "{\"crewSize\":20}").andExpect(status().isNotFound());
+        assertEquals(10, getShip(1).get("crewSize").asInt());
+
+        patchShip(1, null, "{\"crewSize\":30}").andExpect(status().is(428));
+        assertEquals("PATCH без If-Match не должен ничего менять.", 10, getShip(1).get("crewSize").asInt());
+        patchShip(1, "*", "{\"crewSize\":40}").andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.2\""));
+        assertEquals(40, getShip(1).get("crewSize").asInt());
+    }
+
+    //test3
+    @Test
+    public void concurrentEditorsNeverLoseUpdates() throws Exception {
+        int threads = 8;
+        int incrementsPerThread = 20;
+        int initialCrew = getShip(1).get("crewSize").asInt();
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Callable<Void>> editors = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            editors.add(() -> {
+                for (int i = 0; i < incrementsPerThread; ) {
+                    MvcResult read = perform(get("/rest/ships/1")).andExpect(status().isOk()).andReturn();
+                    int crewSize = mapper.readTree(read.getResponse().getContentAsString()).get("crewSize").asInt();
+                    int status = patchShip(1, read.getResponse().getHeader(HttpHeaders.ETAG), "{\"crewSize\":" + (crewSize + 1) + "}")
+                            .andReturn().getResponse().getStatus();
+                    if (status == 204) {
+                        i++;
+                    } else {
+                        assertEquals(409, status);
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> editor : executor.invokeAll(editors)) {
+                editor.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        MvcResult result = perform(get("/rest/ships/1")).andExpect(status().isOk()).andReturn();
+        assertEquals("Ни одно обновление не должно потеряться.", initialCrew + threads * incrementsPerThread,
+                mapper.readTree(result.getResponse().getContentAsString()).get("crewSize").asInt());
+        assertEquals("\"1." + threads * incrementsPerThread + "\"", result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    private ResultActions patchShip(long id, String ifMatch, String body) throws Exception {
+        MockHttpServletRequestBuilder request = patch("/rest/ships/" + id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(body);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return perform(request);
+    }
+
+    private JsonNode getShip(long id) throws Exception {
+        return mapper.readTree(perform(get("/rest/ships/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private int count(String query) throws Exception {
+        return Integer.parseInt(perform(get("/rest/ships/count" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,82 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PoolMetricsTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void poolMetricsReportAcquisitions() throws Exception {
+        long before = pool().get("acquireTime").get("count").asLong();
+
+        perform(get("/rest/ships/count")).andExpect(status().isOk());
+        perform(get("/rest/ships/1")).andExpect(status().isOk());
+
+        JsonNode pool = pool();
+        assertEquals(10, pool.get("maxSize").asInt());
+        assertEquals(0, pool.get("active").asInt());
+        assertEquals(pool.get("total").asInt(), pool.get("active").asInt() + pool.get("idle").asInt());
+        assertTrue("Получение соединений должно попадать в гистограмму.", pool.get("acquireTime").get("count").asLong() >= before + 2);
+    }
+
+    //test2
+    @Test
+    public void poolIsBoundedAndReportsWaiters() throws Exception {
+        DataSource dataSource = context.getBean(DataSource.class);
+        int maxSize = pool().get("maxSize").asInt();
+
+        List<Connection> held = new ArrayList<>();
+        CompletableFuture<Connection> waiter = null;
+        try {
+            for (int i = 0; i < maxSize; i++) {
+                held.add(dataSource.getConnection());
+            }
+            waiter = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dataSource.getConnection();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            JsonNode pool = pool();
+            for (int i = 0; i < 100 && pool.get("waiters").asInt() == 0; i++) {
+                Thread.sleep(10);
+                pool = pool();
+            }
+            assertEquals(maxSize, pool.get("active").asInt());
+            assertEquals("Запрос сверх размера пула должен ждать.", 1, pool.get("waiters").asInt());
+
+            held.remove(0).close();
+            waiter.get(2, TimeUnit.SECONDS).close();
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    private JsonNode pool() throws Exception {
+        return mapper.readTree(perform(get("/rest/diagnostics/pool")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,101 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.diagnostics.QueryLog;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"db.queryLog.enabled=true", "db.queryLog.thresholdMillis=60000"})
+public class QueryLogTest extends AbstractTest {
+    private static final String ORIGIN = "ShipController.findAll?minSpeed&order=SPEED&pageSize";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void aggregatesStatementsByShapeAndOrigin() throws Exception {
+        perform(get("/rest/ships?minSpeed=0.41&order=SPEED&pageSize=5")).andExpect(status().isOk());
+        perform(get("/rest/ships?minSpeed=0.42&order=SPEED&pageSize=5")).andExpect(status().isOk());
+
+        JsonNode queries = json("/rest/diagnostics/queries?top=100");
+        assertTrue("Журнал запросов должен быть включён.", queries.get("enabled").asBoolean());
+        JsonNode shape = null;
+        for (JsonNode candidate : queries.get("mostFrequent")) {
+            if (candidate.get("origins").has(ORIGIN)) {
+                shape = candidate;
+            }
+        }
+        assertTrue("Запрос должен быть связан с формой фильтра ShipController.", shape != null);
+        assertTrue("Литералы должны заменяться параметрами-заполнителями.", shape.get("sql").asText().contains("speed>=?"));
+        assertTrue("Запросы с разными значениями фильтра должны иметь одну форму.", shape.get("origins").get(ORIGIN).asLong() >= 2);
+        assertTrue("Должно учитываться число строк.", shape.get("rows").asLong() > 0);
+    }
+
+    //test2
+    @Test
+    public void logsSlowStatementsWithBindValues() throws Exception {
+        QueryLog queryLog = context.getBean(QueryLog.class);
+        Object threshold = ReflectionTestUtils.getField(queryLog, "thresholdNanos");
+        ReflectionTestUtils.setField(queryLog, "thresholdNanos", 0L);
+        try {
+            perform(get("/rest/ships?minSpeed=0.37&order=SPEED&pageSize=5")).andExpect(status().isOk());
+        } finally {
+            ReflectionTestUtils.setField(queryLog, "thresholdNanos", threshold);
+        }
+
+        JsonNode slow = null;
+        for (JsonNode entry : json("/rest/diagnostics/queries?top=100").get("recentSlow")) {
+            if (entry.get("sql").asText().contains("speed>=0.37") && entry.get("sql").asText().contains("limit")) {
+                slow = entry;
+            }
+        }
+        assertTrue("Медленный запрос должен попасть в журнал с исходным SQL.", slow != null);
+        assertEquals(ORIGIN, slow.get("origin").asText());
+        assertEquals("Значения параметров должны сохраняться.", "[5]", slow.get("binds").asText());
+        assertTrue(slow.get("rows").asLong() > 0);
+        assertTrue(slow.get("millis").asDouble() >= 0);
+    }
+
+    //test3
+    @Test
+    public void exposesHibernateStatistics() throws Exception {
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        boolean enabled = statistics.isStatisticsEnabled();
+        try {
+            statistics.setStatisticsEnabled(false);
+            JsonNode disabled = json("/rest/diagnostics/hibernate");
+            assertFalse(disabled.get("statisticsEnabled").asBoolean());
+            assertFalse("Без статистики нулевые счётчики не показываются.", disabled.has("queryExecutions"));
+            assertTrue(json("/rest/diagnostics/cache").at("/ship/hits").isNull());
+        } finally {
+            statistics.setStatisticsEnabled(enabled);
+        }
+
+        statistics.setStatisticsEnabled(true);
+        long before = json("/rest/diagnostics/hibernate").get("queryExecutions").asLong();
+
+        perform(get("/rest/ships?minSpeed=0.43&pageSize=5")).andExpect(status().isOk());
+
+        JsonNode hibernate = json("/rest/diagnostics/hibernate?top=3");
+        assertTrue(hibernate.get("statisticsEnabled").asBoolean());
+        assertTrue("Выполненные запросы должны учитываться.", hibernate.get("queryExecutions").asLong() > before);
+        assertTrue(hibernate.get("slowestQueries").size() <= 3);
+    }
+
+    private JsonNode json(String url) throws Exception {
+        return mapper.readTree(perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,134 @@
+package com.space.controller;
+
+import com.space.service.ShipRating;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RatingEquivalenceTest {
+
+    private final Random random = new Random(42);
+
+    //test1
+    @Test
+    public void yearMatchesCalendarAroundEveryNewYear() {
+        Calendar calendar = new GregorianCalendar();
+        for (int year = 2790; year <= 3030; year++) {
+            calendar.clear();
+            calendar.set(year, Calendar.JANUARY, 1);
+            long newYear = calendar.getTimeInMillis();
+            for (long delta : new long[]{-86_400_000L, -1, 0, 1, 86_400_000L}) {
+                assertYear(newYear + delta);
+            }
+        }
+        for (int i = 0; i < 100_000; i++) {
+            // 2700-01-01 .. 3100-01-01
+            assertYear(23_036_227_200_000L + (long) (random.nextDouble() * 12_622_780_800_000L));
+        }
+    }
+
+    //test2
+    @Test
+    public void yearBeforeChristIsNotFoldedIntoValidRange() {
+        Calendar calendar = new GregorianCalendar();
+        calendar.clear();
+        calendar.set(Calendar.ERA, GregorianCalendar.BC);
+        calendar.set(3000, Calendar.JUNE, 1);
+
+        int year = ShipRating.yearOf(calendar.getTimeInMillis());
+        assertTrue("Год до нашей эры не должен попадать в диапазон 2800..3019", year < 2800 || year > 3019);
+    }
+
+    //test3
+    @Test
+    public void ratingMatchesBigDecimalForEveryYearAndSpeedSweep() {
+        for (int year = 2800; year <= 3019; year++) {
+            for (int thousandths = 10; thousandths <= 990; thousandths++) {
+                double speed = Double.parseDouble("0." + String.format("%03d", thousandths));
+                assertRating(speed, false, year);
+                assertRating(speed, true, year);
+            }
+            for (int i = 0; i < 2_000; i++) {
+                double speed = 0.01 + random.nextDouble() * 0.98;
+                assertRating(speed, random.nextBoolean(), year);
+            }
+        }
+    }
+
+    //test4
+    @Test
+    public void ratingMatchesBigDecimalNextToEveryMidpoint() {
+        for (int year = 2800; year <= 3019; year++) {
+            for (boolean used : new boolean[]{false, true}) {
+                double k = used ? 0.5 : 1;
+                double max = (80 * 0.99 * k) / (3019 - year + 1);
+                for (int hundredths = 0; hundredths + 0.5 <= max * 100; hundredths++) {
+                    // the speed whose rating lands on x.xx5, and its neighbouring doubles
+                    double speed = (hundredths + 0.5) / 100 * (3019 - year + 1) / (80 * k);
+                    for (int step = 0; step < 4; step++) {
+                        speed = Math.nextDown(speed);
+                    }
+                    for (int step = 0; step < 9; step++, speed = Math.nextUp(speed)) {
+                        if (speed >= 0.01 && speed <= 0.99) {
+                            assertRating(speed, used, year);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //test5
+    @Test
+    public void ratingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        long epochMillis = 31_000_000_000_000L;
+
+        double sink = sweep(epochMillis);
+        long before = allocations.getThreadAllocatedBytes(thread);
+        sink += sweep(epochMillis);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(sink > 0);
+        assertTrue("Расчёт рейтинга не должен выделять память: " + allocated + " байт", allocated < 64 * 1024);
+    }
+
+    private static double sweep(long epochMillis) {
+        double sum = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            int year = ShipRating.yearOf(epochMillis + i * 60_000L);
+            sum += ShipRating.rating(0.01 + (i % 99) / 100.0, (i & 1) == 0, year);
+        }
+        return sum;
+    }
+
+    private static void assertYear(long epochMillis) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(epochMillis);
+        assertEquals("Год не совпадает с Calendar для " + epochMillis,
+                calendar.get(Calendar.YEAR), ShipRating.yearOf(epochMillis));
+    }
+
+    private static void assertRating(double speed, boolean used, int year) {
+        double k = used ? 0.5 : 1;
+        double expected = BigDecimal.valueOf((80 * speed * k) / (3019 - year + 1)).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        double actual = ShipRating.rating(speed, used, year);
+        if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)) {
+            assertEquals("Рейтинг не совпадает для speed=" + speed + ", isUsed=" + used + ", year=" + year,
+                    expected, actual, 0);
+        }
+    }
+}
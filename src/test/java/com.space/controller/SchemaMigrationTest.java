@@ -0,0 +1,41 @@
+package com.space.controller;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaMigrationTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void allMigrationsAreApplied() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"success\" = TRUE AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"", String.class);
+
+        assertEquals(Arrays.asList("1", "2", "3"), versions);
+    }
+
+    //test2
+    @Test
+    public void filterColumnsAreIndexed() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+
+        Set<String> indexes = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'SHIP'", String.class));
+
+        for (String index : new String[]{"IDX_SHIP_SPEED", "IDX_SHIP_RATING", "IDX_SHIP_PROD_DATE",
+                "IDX_SHIP_CREW_SIZE", "IDX_SHIP_TYPE_PROD_DATE", "IDX_SHIP_USED_RATING"}) {
+            assertTrue("Отсутствует индекс " + index, indexes.contains(index));
+        }
+    }
+}
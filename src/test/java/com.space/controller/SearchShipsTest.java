@@ -0,0 +1,97 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SearchShipsTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void searchWithoutFiltersReturnsFirstPageAndTotal() throws Exception {
+        JsonNode page = search("");
+
+        assertEquals("Неверное общее количество при запросе GET /rest/ships/search.",
+                testsHelper.getAllShips().size(), page.get("totalCount").asInt());
+        assertEquals(testsHelper.getShipInfosByPage(0, 3, testsHelper.getAllShips()), content(page));
+        assertEquals(0, page.get("pageNumber").asInt());
+        assertEquals(3, page.get("pageSize").asInt());
+        assertEquals(14, page.get("totalPages").asInt());
+        assertEquals(1, page.get("nextPageNumber").asInt());
+    }
+
+    //test2
+    @Test
+    public void searchMatchesListAndCountEndpoints() throws Exception {
+        String[] queries = {
+                "?name=ra&pageNumber=1",
+                "?planet=ur&pageSize=4",
+                "?shipType=MERCHANT&isUsed=true&order=SPEED",
+                "?minRating=0.5&minCrewSize=100&minSpeed=0.3&order=RATING&pageSize=5&pageNumber=2",
+                "?after=32188140000000&maxRating=3&order=DATE"
+        };
+
+        for (String query : queries) {
+            JsonNode page = search(query);
+
+            String list = perform(get("/rest/ships" + query).accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            String count = perform(get("/rest/ships/count" + query).accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            assertEquals("Содержимое GET /rest/ships/search" + query + " отличается от GET /rest/ships.",
+                    mapper.readTree(list), page.get("content"));
+            assertEquals("Количество GET /rest/ships/search" + query + " отличается от GET /rest/ships/count.",
+                    Integer.parseInt(count), page.get("totalCount").asInt());
+        }
+    }
+
+    //test3
+    @Test
+    public void searchLastPageHasNoNextPage() throws Exception {
+        JsonNode page = search("?shipType=MILITARY&maxCrewSize=400&pageSize=10");
+
+        assertTrue(page.get("nextPageNumber").isNull());
+    }
+
+    //test4
+    @Test
+    public void searchWithInvalidFilterIsBadRequest() throws Exception {
+        perform(get("/rest/ships/search?shipType=SPACESHIP").accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+        perform(get("/rest/ships/search?minSpeed=fast").accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode search(String query) throws Exception {
+        String content = perform(get("/rest/ships/search" + query)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+
+    private List<ShipInfoTest> content(JsonNode page) throws Exception {
+        List<ShipInfoTest> ships = new ArrayList<>();
+        for (JsonNode node : page.get("content")) {
+            ships.add(mapper.treeToValue(node, ShipInfoTest.class));
+        }
+        return ships;
+    }
+}
@@ -0,0 +1,164 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.diagnostics.CacheMetrics;
+import com.space.service.ShipChangeEvent;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = "ships.queryCache.enabled=true")
+public class SecondLevelCacheTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Statistics statistics;
+
+    @Before
+    public void setup() {
+        super.setup();
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    //test1
+    @Test
+    public void repeatedGetIsServedFromCache() throws Exception {
+        assertEquals("Orion III", getShip(1).get("name").asText());
+        long statements = statistics.getPrepareStatementCount();
+        getShip(1);
+
+        assertEquals("Повторный GET /rest/ships/{id} должен обслуживаться из кэша.", statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getDomainDataRegionStatistics(CacheMetrics.SHIP_REGION).getHitCount() > 0);
+    }
+
+    //test2
+    @Test
+    public void updateAndDeleteAreVisibleThroughCache() throws Exception {
+        getShip(1);
+
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Orion IV\"}"))
+                .andExpect(status().isOk());
+        assertEquals("После обновления GET должен вернуть новое имя.", "Orion IV", getShip(1).get("name").asText());
+
+        perform(delete("/rest/ships/1")).andExpect(status().isOk());
+        perform(get("/rest/ships/1")).andExpect(status().isNotFound());
+    }
+
+    //test3
+    @Test
+    public void outOfBandWriteIsVisibleAfterReload() throws Exception {
+        getShip(1);
+        new JdbcTemplate(context.getBean(DataSource.class)).update("UPDATE ship SET name = 'Orion JDBC' WHERE id = 1");
+        long evictions = context.getBean(CacheMetrics.class).getExplicitEvictions();
+
+        context.publishEvent(ShipChangeEvent.reloaded());
+
+        assertEquals("Orion JDBC", getShip(1).get("name").asText());
+        assertEquals(evictions + 1, context.getBean(CacheMetrics.class).getExplicitEvictions());
+    }
+
+    //test4
+    @Test
+    public void filteredListIsServedFromQueryCacheUntilWrite() throws Exception {
+        int before = list("?planet=Mars&pageSize=100").size();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(before, list("?planet=Mars&pageSize=100").size());
+        assertEquals("Повторный запрос списка должен обслуживаться из кэша запросов.", statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getQueryCacheHitCount() > 0);
+
+        perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Ares\",\"planet\":\"Mars\",\"shipType\":\"MILITARY\"," +
+                        "\"prodDate\":32998274577071,\"speed\":0.8,\"crewSize\":14}"))
+                .andExpect(status().isOk());
+
+        assertEquals("После создания корабля кэш запросов должен сбрасываться.", before + 1, list("?planet=Mars&pageSize=100").size());
+    }
+
+    //test5
+    @Test
+    public void cacheStatisticsAreExposed() throws Exception {
+        getShip(1);
+        getShip(1);
+
+        JsonNode cache = mapper.readTree(perform(get("/rest/diagnostics/cache"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertTrue(cache.get("ship").get("hits").asLong() > 0);
+        assertTrue(cache.get("ship").has("misses"));
+        assertTrue(cache.get("ship").has("evictions"));
+        assertTrue(cache.get("queries").has("hits"));
+        assertTrue(cache.has("explicitEvictions"));
+    }
+
+    //test6
+    @Test
+    public void batchInsertInvalidatesQueryCache() throws Exception {
+        int before = list("?planet=Mars&pageSize=100").size();
+        list("?planet=Mars&pageSize=100");
+        assertTrue(statistics.getQueryCacheHitCount() > 0);
+        long timestamps = statistics.getUpdateTimestampsCachePutCount();
+
+        String ship = "{\"name\":\"Ares\",\"planet\":\"Mars\",\"shipType\":\"MILITARY\","
+                + "\"prodDate\":32998274577071,\"speed\":0.8,\"crewSize\":14}";
+        perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("[" + ship + "," + ship + "]"))
+                .andExpect(status().isOk());
+
+        // a query that read the table before the commit must not be cached as current after it
+        assertTrue("Пакетная вставка должна отмечать таблицу ship изменённой.",
+                statistics.getUpdateTimestampsCachePutCount() > timestamps);
+        assertEquals("Пакетная вставка должна сбрасывать кэш запросов.", before + 2, list("?planet=Mars&pageSize=100").size());
+    }
+
+    //test7
+    @Test
+    public void writesThroughTheServiceEvictNothingExplicitly() throws Exception {
+        CacheMetrics cacheMetrics = context.getBean(CacheMetrics.class);
+        long evictions = cacheMetrics.getExplicitEvictions();
+
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Orion IV\"}"))
+                .andExpect(status().isOk());
+        perform(delete("/rest/ships/2")).andExpect(status().isOk());
+
+        assertEquals("Запись через сервис не должна сбрасывать регионы кэша целиком.", evictions, cacheMetrics.getExplicitEvictions());
+        assertEquals("Orion IV", getShip(1).get("name").asText());
+    }
+
+    private JsonNode getShip(long id) throws Exception {
+        return mapper.readTree(perform(get("/rest/ships/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private JsonNode list(String query) throws Exception {
+        return mapper.readTree(perform(get("/rest/ships" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,236 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.space.controller.utils.TestsHelper;
+import com.space.service.ShipChangeEvent;
+import com.space.service.ShipChangeFeed;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.servlet.Filter;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipChangesTest extends AbstractTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<MvcResult> streams = new ArrayList<>();
+
+    @After
+    public void closeStreams() {
+        streams.forEach(stream -> stream.getRequest().getAsyncContext().complete());
+    }
+
+    //test1
+    @Test
+    public void createIsStreamedAfterCommit() throws Exception {
+        MvcResult stream = subscribe(get("/rest/ships/changes"));
+
+        perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(TestsHelper.CORRECT_COMPUTE_RATING_JSON))
+                .andExpect(status().isOk());
+
+        List<JsonNode> events = awaitEvents(stream, 1);
+        JsonNode created = events.get(0);
+        assertEquals("create", created.get("event").asText());
+        assertEquals("Id события должен совпадать с номером изменения.", created.get("id").asLong(), created.at("/data/sequence").asLong());
+        assertEquals(41, created.at("/data/id").asLong());
+        assertEquals("test10", created.at("/data/ship/name").asText());
+    }
+
+    //test2
+    @Test
+    public void reconnectResumesAfterLastEventId() throws Exception {
+        long before = context.getBean(ShipChangeFeed.class).getLastSequence();
+        perform(patch("/rest/ships/1")
+                .header(HttpHeaders.IF_MATCH, "\"1.0\"")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"id\":7,\"name\":\"Orion Patched\"}"))
+                .andExpect(status().isNoContent());
+        perform(delete("/rest/ships/2")).andExpect(status().isOk());
+
+        MvcResult stream = subscribe(get("/rest/ships/changes").header("Last-Event-ID", before));
+
+        List<JsonNode> events = awaitEvents(stream, 2);
+        assertEquals("update", events.get(0).get("event").asText());
+        assertEquals(1, events.get(0).at("/data/id").asLong());
+        assertEquals("Orion Patched", events.get(0).at("/data/ship/name").asText());
+        assertEquals("Частичное изменение должно называть изменённый корабль, а не id из тела запроса.",
+                1, events.get(0).at("/data/ship/id").asLong());
+        assertTrue("PATCH передаёт только изменённые поля.", events.get(0).at("/data/partial").asBoolean());
+        assertEquals("delete", events.get(1).get("event").asText());
+        assertEquals(2, events.get(1).at("/data/ship/id").asLong());
+        assertEquals("Номера изменений должны идти подряд.", before + 1, events.get(0).get("id").asLong());
+        assertEquals("Номера изменений должны идти подряд.", before + 2, events.get(1).get("id").asLong());
+    }
+
+    //test3
+    @Test
+    public void resumingBeyondTheBufferResets() throws Exception {
+        ShipChangeStream changeStream = context.getBean(ShipChangeStream.class);
+        long last = context.getBean(ShipChangeFeed.class).getLastSequence();
+
+        MvcResult stream = subscribe(get("/rest/ships/changes?after=1"));
+        assertEquals(1, changeStream.getSubscriberCount());
+
+        JsonNode reset = awaitEvents(stream, 1).get(0);
+        assertEquals("Клиент, пропустивший изменения, должен перечитать список.", "reset", reset.get("event").asText());
+        assertEquals(last, reset.get("id").asLong());
+
+        closeStreams();
+        streams.clear();
+        assertEquals("Закрытый поток должен отписываться от изменений.", 0, changeStream.getSubscriberCount());
+    }
+
+    //test4
+    @Test
+    public void resumingFromBeforeStartupResets() {
+        ShipChangeFeed feed = new ShipChangeFeed(16);
+        long first = feed.getLastSequence();
+        feed.onShipChange(ShipChangeEvent.reloaded());
+
+        assertNull("Номера до запуска неизвестны, клиент должен перечитать список.", feed.readAfter(first - 1, 100));
+        assertEquals(1, feed.readAfter(first, 100).size());
+        assertEquals("reload", feed.readAfter(first, 100).get(0).getType());
+    }
+
+    //test5
+    @Test
+    public void clientsThatStopReadingHoldUpNobody() throws Exception {
+        ShipChangeStream changeStream = context.getBean(ShipChangeStream.class);
+        long sendTimeout = changeStream.sendTimeoutMillis;
+        CountDownLatch read = new CountDownLatch(1);
+        // responses of these clients take nothing until the latch opens, as when a client stops reading
+        Filter stalling = (request, response, chain) -> chain.doFilter(request, new StalledResponse((HttpServletResponse) response, read));
+        MockMvc stalledMvc = MockMvcBuilders.webAppContextSetup(context).addFilter(stalling).build();
+        int stalled = context.getBean("shipChangeSender", ThreadPoolTaskExecutor.class).getCorePoolSize() + 1;
+        try {
+            ReflectionTestUtils.setField(changeStream, "sendTimeoutMillis", 200L);
+            for (int i = 0; i < stalled; i++) {
+                MvcResult stream = stalledMvc.perform(get("/rest/ships/changes").accept(MediaType.TEXT_EVENT_STREAM)).andReturn();
+                assertTrue(stream.getRequest().isAsyncStarted());
+                streams.add(stream);
+            }
+            MvcResult reading = subscribe(get("/rest/ships/changes"));
+
+            perform(delete("/rest/ships/3")).andExpect(status().isOk());
+            assertEquals("Клиент, который читает, не должен ждать тех, кто не читает.",
+                    "delete", awaitEvents(reading, 1).get(0).get("event").asText());
+
+            Thread.sleep(300);
+            perform(delete("/rest/ships/4")).andExpect(status().isOk());
+            assertEquals("delete", awaitEvents(reading, 2).get(1).get("event").asText());
+            assertEquals("Зависшие клиенты должны отключаться.", 1, changeStream.getSubscriberCount());
+        } finally {
+            ReflectionTestUtils.setField(changeStream, "sendTimeoutMillis", sendTimeout);
+            read.countDown();
+        }
+    }
+
+    private MvcResult subscribe(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult stream = mockMvc.perform(request.accept(MediaType.TEXT_EVENT_STREAM)).andReturn();
+        assertTrue(stream.getRequest().isAsyncStarted());
+        streams.add(stream);
+        return stream;
+    }
+
+    // Events written so far as {id, event, data}; waits until there are at least `count` of them.
+    private List<JsonNode> awaitEvents(MvcResult stream, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            List<JsonNode> events = new ArrayList<>();
+            // only whole events: the last one may still be half written
+            String content = stream.getResponse().getContentAsString();
+            content = content.substring(0, content.lastIndexOf("\n\n") + 1);
+            for (String block : content.split("\n\n")) {
+                if (block.isEmpty()) {
+                    continue;
+                }
+                ObjectNode event = mapper.createObjectNode();
+                for (String line : block.split("\n")) {
+                    int colon = line.indexOf(':');
+                    String field = line.substring(0, colon);
+                    String value = line.substring(colon + 1);
+                    event.set(field, field.equals("data") ? mapper.readTree(value) : mapper.getNodeFactory().textNode(value));
+                }
+                events.add(event);
+            }
+            if (events.size() >= count) {
+                return events;
+            }
+            assertTrue("Событие не пришло за 5 секунд.", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class StalledResponse extends HttpServletResponseWrapper {
+        private final CountDownLatch read;
+
+        StalledResponse(HttpServletResponse response, CountDownLatch read) {
+            super(response);
+            this.read = read;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            ServletOutputStream out = super.getOutputStream();
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    stall();
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    stall();
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return false;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        private void stall() throws IOException {
+            try {
+                read.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
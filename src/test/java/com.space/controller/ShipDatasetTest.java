@@ -0,0 +1,94 @@
+package com.space.controller;
+
+import com.space.controller.utils.ShipBulkLoader;
+import com.space.controller.utils.ShipDataset;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipChangeEvent;
+import com.space.service.ShipRating;
+import com.space.service.ShipService;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShipDatasetTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void sameSeedGivesSameShipsInAnyOrder() {
+        ShipDataset first = new ShipDataset(7);
+        ShipDataset second = new ShipDataset(7);
+        for (long index = 999; index >= 0; index--) {
+            assertEquals("Набор данных должен воспроизводиться по seed.", describe(first.ship(index)), describe(second.ship(index)));
+        }
+        assertNotEquals(describe(first.ship(0)), describe(new ShipDataset(8).ship(0)));
+    }
+
+    //test2
+    @Test
+    public void generatedShipsPassValidationWithTheirRating() {
+        ShipService shipService = context.getBean(ShipService.class);
+        ShipDataset dataset = new ShipDataset(3)
+                .planets("Mars=5,Earth=1")
+                .shipTypes("MILITARY=1")
+                .years("2800-2801=1,3018-3019=1")
+                .speed(0.05, 0.5)
+                .usedShare(0.9);
+
+        for (long index = 0; index < 500; index++) {
+            Ship generated = dataset.ship(index);
+            Ship ship = copyWithoutRating(generated);
+            Ship saved = shipService.createShip(ship);
+
+            assertEquals("Рейтинг должен совпадать с computeRating.", generated.getRating(), saved.getRating());
+            assertEquals(ShipType.MILITARY, saved.getShipType());
+            int year = ShipRating.yearOf(saved.getProdDate().getTime());
+            assertTrue(year <= 2801 || year >= 3018);
+        }
+    }
+
+    //test3
+    @Test
+    public void loaderInsertsTheGeneratedRowsAndKeepsIndexes() throws Exception {
+        DataSource dataSource = context.getBean(DataSource.class);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        ShipDataset dataset = new ShipDataset(11).planets("Pluto=1");
+
+        long loaded = new ShipBulkLoader(dataSource).load(dataset, 0, 2_500, ShipBulkLoader.Mode.INSERT);
+        context.publishEvent(ShipChangeEvent.reloaded());
+
+        assertEquals(2_500, loaded);
+        assertEquals("Загрузчик должен добавить все строки.", Integer.valueOf(40 + 2_500),
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ship", Integer.class));
+        assertEquals(Integer.valueOf(2_500), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ship WHERE planet = 'Pluto'", Integer.class));
+        ShipService shipService = context.getBean(ShipService.class);
+        for (long index : new long[]{0, 999, 1_000, 2_499}) {
+            assertEquals(describe(dataset.ship(index)), describe(shipService.getShip(41 + index)));
+        }
+        assertEquals("Индексы V2 должны быть пересозданы после загрузки.", Integer.valueOf(6), jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME LIKE 'IDX_SHIP_%'", Integer.class));
+    }
+
+    private static Ship copyWithoutRating(Ship generated) {
+        Ship ship = new Ship();
+        ship.setName(generated.getName());
+        ship.setPlanet(generated.getPlanet());
+        ship.setShipType(generated.getShipType());
+        ship.setProdDate(new Date(generated.getProdDate().getTime()));
+        ship.setUsed(generated.getUsed());
+        ship.setSpeed(generated.getSpeed());
+        ship.setCrewSize(generated.getCrewSize());
+        return ship;
+    }
+
+    private static String describe(Ship ship) {
+        return ship.getName() + "|" + ship.getPlanet() + "|" + ship.getShipType() + "|" + new java.sql.Date(ship.getProdDate().getTime())
+                + "|" + ship.getUsed() + "|" + ship.getSpeed() + "|" + ship.getCrewSize() + "|" + ship.getRating();
+    }
+}
@@ -0,0 +1,124 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.model.Ship;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipExportTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void ndjsonMatchesFilteredList() throws Exception {
+        String body = perform(get("/rest/ships/export?planet=Earth&order=SPEED"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode list = mapper.readTree(perform(get("/rest/ships?planet=Earth&order=SPEED&pageSize=100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        String[] lines = body.split("\n");
+        assertEquals("Экспорт должен содержать по одной строке на корабль.", list.size(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(list.get(i), mapper.readTree(lines[i]));
+        }
+    }
+
+    //test2
+    @Test
+    public void csvQuotesTextFields() throws Exception {
+        perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Quote \\\"Q\\\", Ltd\",\"planet\":\"Earth\",\"shipType\":\"MILITARY\"," +
+                        "\"prodDate\":32998274577071,\"speed\":0.8,\"crewSize\":14}"))
+                .andExpect(status().isOk());
+
+        String body = perform(get("/rest/ships/export?format=CSV&name=Ltd"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\r\n");
+        assertEquals("id,name,planet,shipType,prodDate,isUsed,speed,crewSize,rating", lines[0]);
+        assertEquals(2, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("41,\"Quote \"\"Q\"\", Ltd\",Earth,MILITARY,"));
+        assertTrue(lines[1], lines[1].endsWith(",false,0.8,14,12.8"));
+    }
+
+    //test3
+    @Test
+    public void rejectsUnknownFormat() throws Exception {
+        perform(get("/rest/ships/export?format=XML")).andExpect(status().isBadRequest());
+    }
+
+    //test4
+    @Test
+    public void heapStaysFlatWhileStreaming() throws Exception {
+        int rows = 50_000;
+        new ShipTableSeeder(context.getBean(DataSource.class)).seed(rows);
+        ShipFilter all = new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long[] heap = new long[2];
+        int[] managed = new int[1];
+        EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+
+        ShipExportWriter writer = new ShipExportWriter.Ndjson(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }) {
+            @Override
+            public void accept(Ship ship) {
+                super.accept(ship);
+                EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+                managed[0] = Math.max(managed[0], entityManager.unwrap(SessionImplementor.class)
+                        .getPersistenceContext().getNumberOfManagedEntities());
+                if (getRows() == 5_000 || getRows() == rows) {
+                    heap[getRows() == rows ? 1 : 0] = usedHeapAfterGc(memory);
+                }
+            }
+        };
+        context.getBean(ShipService.class).exportShips(all, ShipOrder.ID.getSort(), writer);
+        writer.finish();
+
+        assertEquals(rows + 40, writer.getRows());
+        assertEquals("Выгруженные корабли не должны оставаться в контексте персистентности.", 1, managed[0]);
+        long growth = heap[1] - heap[0];
+        assertTrue("Потребление памяти не должно расти с числом выгруженных строк: +" + growth / 1024 + " KB",
+                growth < 8 * 1024 * 1024);
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
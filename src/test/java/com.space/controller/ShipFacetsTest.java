@@ -0,0 +1,108 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.model.ShipType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipFacetsTest extends AbstractTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void facetCountsMatchIndividualCounts() throws Exception {
+        String filter = "minSpeed=0.3&maxCrewSize=3000";
+        JsonNode facets = json("/rest/ships/facets?" + filter);
+
+        assertEquals(count(filter), facets.get("totalCount").asInt());
+        for (ShipType shipType : ShipType.values()) {
+            assertEquals("Фасет shipType=" + shipType + " должен совпадать с /count.",
+                    count(filter + "&shipType=" + shipType), facets.at("/shipType/" + shipType).asInt());
+        }
+        for (boolean isUsed : new boolean[]{true, false}) {
+            assertEquals("Фасет isUsed=" + isUsed + " должен совпадать с /count.",
+                    count(filter + "&isUsed=" + isUsed), facets.at("/isUsed/" + isUsed).asInt());
+        }
+        facets.get("prodYear").fields().forEachRemaining(year -> {
+            int value = Integer.parseInt(year.getKey());
+            long after = new GregorianCalendar(value, Calendar.JANUARY, 1).getTimeInMillis();
+            long before = new GregorianCalendar(value, Calendar.DECEMBER, 31).getTimeInMillis();
+            try {
+                assertEquals("Фасет prodYear=" + value + " должен совпадать с /count.",
+                        count(filter + "&after=" + after + "&before=" + before), year.getValue().asInt());
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    //test2
+    @Test
+    public void planetsYearsAndRangesMatchTheShips() throws Exception {
+        String filter = "isUsed=false";
+        JsonNode ships = json("/rest/ships?pageSize=100&" + filter);
+        Map<String, Integer> planets = new TreeMap<>();
+        Map<String, Integer> years = new TreeMap<>();
+        double minRating = Double.MAX_VALUE, maxRating = 0, sumSpeed = 0;
+        int maxCrewSize = 0;
+        for (JsonNode ship : ships) {
+            planets.merge(ship.get("planet").asText(), 1, Integer::sum);
+            Calendar prodDate = new GregorianCalendar();
+            prodDate.setTimeInMillis(ship.get("prodDate").asLong());
+            years.merge(String.valueOf(prodDate.get(Calendar.YEAR)), 1, Integer::sum);
+            minRating = Math.min(minRating, ship.get("rating").asDouble());
+            maxRating = Math.max(maxRating, ship.get("rating").asDouble());
+            maxCrewSize = Math.max(maxCrewSize, ship.get("crewSize").asInt());
+            sumSpeed += ship.get("speed").asDouble();
+        }
+
+        JsonNode facets = json("/rest/ships/facets?" + filter);
+        assertEquals(ships.size(), facets.get("totalCount").asInt());
+        assertEquals(planets, mapper.convertValue(facets.get("planet"), TreeMap.class));
+        assertEquals(years, mapper.convertValue(facets.get("prodYear"), TreeMap.class));
+        assertEquals(minRating, facets.at("/rating/min").asDouble(), 0.0);
+        assertEquals(maxRating, facets.at("/rating/max").asDouble(), 0.0);
+        assertEquals(maxCrewSize, facets.at("/crewSize/max").asInt());
+        assertEquals(sumSpeed / ships.size(), facets.at("/speed/avg").asDouble(), 1e-9);
+    }
+
+    //test3
+    @Test
+    public void facetsAreOneStatement() throws Exception {
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        long statements = statistics.getPrepareStatementCount();
+
+        JsonNode facets = json("/rest/ships/facets?planet=Earth&shipType=MILITARY");
+
+        assertEquals("Все фасеты должны считаться одним запросом.", statements + 1, statistics.getPrepareStatementCount());
+        assertTrue(facets.get("totalCount").asInt() > 0);
+
+        JsonNode empty = json("/rest/ships/facets?name=no such ship");
+        assertEquals(0, empty.get("totalCount").asInt());
+        assertEquals(0, empty.get("planet").size());
+        assertTrue("Без кораблей min/max/avg пусты.", empty.at("/speed/avg").isNull());
+    }
+
+    private int count(String query) throws Exception {
+        return Integer.parseInt(perform(get("/rest/ships/count?" + query)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private JsonNode json(String url) throws Exception {
+        return mapper.readTree(perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,140 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.service.ShipChangeFeed;
+import com.space.service.ShipService;
+import com.space.service.ShipStatistics;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipImportTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @After
+    public void restoreSettings() {
+        setField("importTransactionRows", 5000);
+        setField("importMaxErrors", 1000);
+    }
+
+    //test1
+    @Test
+    public void importsValidLinesAndReportsInvalidOnes() throws Exception {
+        String body = ship("Import One", 0.5) + "\n"
+                + "{\"name\":\"Broken\",\n"
+                + "\n"
+                + ship("Import Two", 2.0) + "\r\n"
+                + ship("Import Three", 0.99) + "\n"
+                + "null";
+
+        JsonNode result = importBody("NDJSON", body);
+
+        assertEquals("POST /rest/ships/import должен вернуть число загруженных строк.", 2, result.get("imported").asInt());
+        assertEquals(3, result.get("rejected").asInt());
+        assertEquals(2, result.get("errors").get(0).get("line").asInt());
+        assertEquals(4, result.get("errors").get(1).get("line").asInt());
+        assertEquals("ship fails validation", result.get("errors").get(1).get("message").asText());
+        assertEquals(6, result.get("errors").get(2).get("line").asInt());
+        assertTrue(result.has("rowsPerSecond"));
+
+        JsonNode imported = list("?name=Import");
+        assertEquals(2, imported.size());
+        assertEquals("Рейтинг должен вычисляться так же, как при POST /rest/ships.", 8.0, imported.get(0).get("rating").asDouble(), 0.0);
+        assertEquals(41, imported.get(0).get("id").asLong());
+    }
+
+    //test2
+    @Test
+    public void csvExportImportsBack() throws Exception {
+        perform(post("/rest/ships/")
+                .contentType("application/json")
+                .content("{\"name\":\"Quote \\\"Q\\\", Ltd\",\"planet\":\"Earth\",\"shipType\":\"MILITARY\"," +
+                        "\"prodDate\":32998274577071,\"speed\":0.8,\"crewSize\":14}"))
+                .andExpect(status().isOk());
+        String csv = perform(get("/rest/ships/export?format=CSV&planet=Earth"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode before = list("?planet=Earth");
+
+        JsonNode result = importBody("CSV", csv + "1,Bad,Earth,SUBMARINE,32998274577071,false,0.5,10,0\r\n");
+
+        assertEquals(before.size(), result.get("imported").asInt());
+        assertEquals(1, result.get("rejected").asInt());
+        assertEquals(before.size() + 2, result.get("errors").get(0).get("line").asInt());
+        JsonNode after = list("?planet=Earth");
+        assertEquals(2 * before.size(), after.size());
+        for (int i = 0; i < before.size(); i++) {
+            JsonNode copy = after.get(before.size() + i);
+            assertEquals(before.get(i).get("name"), copy.get("name"));
+            assertEquals(before.get(i).get("prodDate"), copy.get("prodDate"));
+            assertEquals(before.get(i).get("rating"), copy.get("rating"));
+        }
+    }
+
+    //test3
+    @Test
+    public void commitsInSeveralTransactionsAndCapsErrorReport() throws Exception {
+        setField("importTransactionRows", 100);
+        setField("importMaxErrors", 10);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1_050; i++) {
+            body.append(i % 50 == 0 ? ship("Bulk " + i, 1.5) : ship("Bulk " + i, 0.5)).append('\n');
+        }
+        ShipChangeFeed feed = context.getBean(ShipChangeFeed.class);
+        long changes = feed.getLastSequence();
+
+        JsonNode result = importBody("NDJSON", body.toString());
+
+        assertEquals(1_029, result.get("imported").asInt());
+        assertEquals(21, result.get("rejected").asInt());
+        assertEquals(10, result.get("errors").size());
+        assertTrue(result.get("errorsTruncated").asBoolean());
+        assertEquals("Каждая загруженная строка должна публиковаться как созданный корабль.", changes + 1_029, feed.getLastSequence());
+        for (ShipChangeFeed.ShipChange change : feed.readAfter(changes + 29, 1_000)) {
+            assertEquals("create", change.getType());
+        }
+        assertTrue("Загрузка не должна заставлять пересчитывать статистику.", context.getBean(ShipStatistics.class).isLoaded());
+        assertEquals(1_029, Integer.parseInt(perform(get("/rest/ships/count?name=Bulk"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()));
+    }
+
+    //test4
+    @Test
+    public void rejectsUnknownCsvColumn() throws Exception {
+        perform(post("/rest/ships/import?format=CSV").content("name,planet,colour\r\nA,B,C\r\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode importBody(String format, String body) throws Exception {
+        return mapper.readTree(perform(post("/rest/ships/import?format=" + format)
+                .contentType(format.equals("CSV") ? "text/csv" : "application/x-ndjson")
+                .content(body.getBytes("UTF-8")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private JsonNode list(String query) throws Exception {
+        return mapper.readTree(perform(get("/rest/ships" + query + "&pageSize=100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private void setField(String name, int value) {
+        ReflectionTestUtils.setField((Object) AopTestUtils.getTargetObject(context.getBean(ShipService.class)), name, value);
+    }
+
+    private static String ship(String name, double speed) {
+        return "{\"name\":\"" + name + "\",\"planet\":\"Earth\",\"shipType\":\"MILITARY\"," +
+                "\"prodDate\":32998274577071,\"speed\":" + speed + ",\"crewSize\":14}";
+    }
+}
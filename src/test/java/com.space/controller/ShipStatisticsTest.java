@@ -0,0 +1,264 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipChangeEvent;
+import com.space.service.ShipService;
+import com.space.service.ShipStatistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipStatisticsTest extends AbstractTest {
+    private static final int WRITERS = 8;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ShipStatistics statistics;
+
+    @Before
+    public void setup() {
+        super.setup();
+        statistics = context.getBean(ShipStatistics.class);
+        awaitStatistics();
+    }
+
+    //test1
+    @Test
+    public void followsWritesThroughRest() throws Exception {
+        assertSameAsDatabase();
+
+        perform(post("/rest/ships/").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Stat\",\"planet\":\"Pluto\",\"shipType\":\"MILITARY\",\"prodDate\":32998274577071,\"isUsed\":true,\"speed\":0.8,\"crewSize\":14}"))
+                .andExpect(status().isOk());
+        perform(post("/rest/ships/3").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"planet\":\"Pluto\",\"speed\":0.11}"))
+                .andExpect(status().isOk());
+        perform(delete("/rest/ships/4")).andExpect(status().isOk());
+        assertSameAsDatabase();
+        assertFalse("Счётчики не должны расходиться с базой.", statistics.reconcile());
+
+        perform(patch("/rest/ships/5").header(HttpHeaders.IF_MATCH, "\"5.0\"").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"shipType\":\"TRANSPORT\",\"speed\":0.9}"))
+                .andExpect(status().isNoContent());
+        assertFalse("PATCH должен учитываться по прежней строке, без пересчёта.", statistics.getSnapshot().isStale());
+        assertSameAsDatabase();
+    }
+
+    //test2
+    @Test
+    public void parallelWritersLoseNoIncrements() throws Exception {
+        ShipStatistics.Snapshot before = statistics.getSnapshot();
+        // a multiple of the three ship types
+        int perWriter = 9_999;
+
+        runWriters(writer -> {
+            for (int i = 0; i < perWriter; i++) {
+                statistics.onShipChange(ShipChangeEvent.created(ship(writer, i)));
+            }
+        });
+        ShipStatistics.Snapshot during = statistics.getSnapshot();
+        assertEquals("Параллельные записи не должны теряться.", before.getTotalShips() + WRITERS * perWriter, during.getTotalShips());
+        assertEquals(WRITERS * perWriter / ShipType.values().length + before.getByType().get(ShipType.MERCHANT),
+                (long) during.getByType().get(ShipType.MERCHANT));
+        assertEquals(perWriter, (long) during.getByPlanet().get("Writer 3"));
+
+        runWriters(writer -> {
+            for (int i = 0; i < perWriter; i++) {
+                statistics.onShipChange(ShipChangeEvent.deleted(ship(writer, i)));
+            }
+        });
+        ShipStatistics.Snapshot after = statistics.getSnapshot();
+        assertEquals(before.getTotalShips(), after.getTotalShips());
+        assertEquals(before.getByType(), after.getByType());
+        assertEquals(before.getByPlanet(), after.getByPlanet());
+        assertEquals("Сумма рейтингов должна возвращаться точно.", before.getAverageRating(), after.getAverageRating());
+    }
+
+    //test3
+    @Test
+    public void parallelServiceWritesMatchTheDatabase() throws Exception {
+        ShipService shipService = context.getBean(ShipService.class);
+
+        runWriters(writer -> {
+            for (int i = 0; i < 25; i++) {
+                Ship ship = ship(writer, i);
+                ship.setId(0);
+                ship.setRating(null);
+                shipService.createShip(ship);
+            }
+        });
+
+        assertEquals(40 + WRITERS * 25, statistics.getSnapshot().getTotalShips());
+        assertFalse("Счётчики не должны расходиться с базой.", statistics.reconcile());
+    }
+
+    //test4
+    @Test
+    public void reconcileRepairsDrift() throws Exception {
+        long drifts = statistics.getSnapshot().getDrifts();
+        new JdbcTemplate(context.getBean(DataSource.class)).update(
+                "INSERT INTO ship(name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) "
+                        + "VALUES ('Stowaway', 'Nowhere', 'MERCHANT', DATE '2995-01-01', false, 0.5, 10, 1.6)");
+        assertEquals(40, statistics.getSnapshot().getTotalShips());
+
+        assertTrue("Сверка должна заметить расхождение.", statistics.reconcile());
+
+        ShipStatistics.Snapshot snapshot = statistics.getSnapshot();
+        assertEquals(41, snapshot.getTotalShips());
+        assertEquals(1, (long) snapshot.getByPlanet().get("Nowhere"));
+        assertEquals(drifts + 1, snapshot.getDrifts());
+        assertSameAsDatabase();
+    }
+
+    //test5
+    @Test
+    public void rebuildLeavesTheRequestPath() throws Exception {
+        CountDownLatch release = holdShipLoader();
+        long merchant;
+        try {
+            merchant = statistics.getSnapshot().getByType().get(ShipType.MERCHANT);
+            // a bulk statement does not say what each row was before
+            perform(patch("/rest/ships?name=Excalibur").contentType(MediaType.APPLICATION_JSON_UTF8)
+                    .content("{\"shipType\":\"MERCHANT\"}"))
+                    .andExpect(status().isOk());
+
+            JsonNode snapshot = json("/rest/ships/statistics");
+            assertTrue("Пока счётчики пересчитываются, ответ должен помечаться устаревшим.", snapshot.get("stale").asBoolean());
+            assertEquals("До пересчёта отдаются прежние числа.", 40, snapshot.get("totalShips").asInt());
+        } finally {
+            release.countDown();
+        }
+        awaitStatistics();
+        ShipStatistics.Snapshot snapshot = statistics.getSnapshot();
+        assertFalse(snapshot.isStale());
+        assertEquals(merchant + 1, (long) snapshot.getByType().get(ShipType.MERCHANT));
+        assertSameAsDatabase();
+    }
+
+    //test6
+    @Test
+    public void reconcileDuringCommitsFindsNoDrift() throws Exception {
+        ShipService shipService = context.getBean(ShipService.class);
+        long drifts = statistics.getSnapshot().getDrifts();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger reconciles = new AtomicInteger();
+        ExecutorService reconciler = Executors.newSingleThreadExecutor();
+        Future<Void> checks = reconciler.submit(() -> {
+            while (writing.get()) {
+                assertFalse("Сверка не должна считать расхождением ещё не учтённые коммиты.", statistics.reconcile());
+                reconciles.incrementAndGet();
+            }
+            return null;
+        });
+        try {
+            runWriters(writer -> {
+                for (int i = 0; i < 25; i++) {
+                    Ship ship = ship(writer, i);
+                    ship.setId(0);
+                    ship.setRating(null);
+                    shipService.createShip(ship);
+                    if (i % 5 == 0) {
+                        shipService.deleteShip(ship.getId());
+                    }
+                }
+            });
+        } finally {
+            writing.set(false);
+            reconciler.shutdown();
+        }
+        checks.get();
+
+        assertTrue(reconciles.get() > 0);
+        assertFalse(statistics.reconcile());
+        assertEquals(drifts, statistics.getSnapshot().getDrifts());
+        assertEquals(40 + WRITERS * 20, statistics.getSnapshot().getTotalShips());
+    }
+
+    private void awaitStatistics() {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!statistics.isLoaded()) {
+            assertTrue("Статистика не пересчиталась за 10 секунд.", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void assertSameAsDatabase() throws Exception {
+        JsonNode facets = json("/rest/ships/facets");
+        JsonNode snapshot = json("/rest/ships/statistics");
+        assertEquals(facets.get("totalCount"), snapshot.get("totalShips"));
+        assertEquals(facets.get("shipType"), snapshot.get("byType"));
+        assertEquals(facets.get("planet"), snapshot.get("byPlanet"));
+        assertEquals(facets.at("/rating/avg").asDouble(), snapshot.get("averageRating").asDouble(), 1e-9);
+    }
+
+    private JsonNode json(String url) throws Exception {
+        return mapper.readTree(perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+
+    private static Ship ship(int writer, int i) {
+        Ship ship = new Ship();
+        ship.setId(1_000_000L * (writer + 1) + i);
+        ship.setName("Writer " + writer + "." + i);
+        ship.setPlanet("Writer " + writer);
+        ship.setShipType(ShipType.values()[(writer * 10_000 + i) % ShipType.values().length]);
+        ship.setProdDate(new GregorianCalendar(2900 + i % 100, Calendar.MARCH, 3).getTime());
+        ship.setUsed(i % 2 == 0);
+        ship.setSpeed(0.5);
+        ship.setCrewSize(100);
+        ship.setRating(0.01 * (i % 1000));
+        return ship;
+    }
+
+    private interface Writer {
+        void run(int writer) throws Exception;
+    }
+
+    private static void runWriters(Writer body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int id = writer;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    body.run(id);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.space.controller;
+
+import com.space.controller.utils.ShipTableSeeder;
+import com.space.model.Ship;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipChangeEvent;
+import com.space.service.ShipFilter;
+import com.space.service.ShipService;
+import com.space.service.ShipTextIndex;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class TextIndexSearchTest extends AbstractTest {
+
+    private ShipService shipService;
+    private ShipRepository shipRepository;
+
+    @Before
+    public void setup() {
+        super.setup();
+        shipService = context.getBean(ShipService.class);
+        shipRepository = context.getBean(ShipRepository.class);
+        awaitIndex();
+    }
+
+    //test1
+    @Test
+    public void indexMatchesLikeForEverySubstring() {
+        new ShipTableSeeder(context.getBean(DataSource.class)).seed(3_000);
+        context.publishEvent(ShipChangeEvent.reloaded());
+        awaitIndex();
+
+        Set<String> terms = new LinkedHashSet<>();
+        for (Ship ship : shipRepository.findAll()) {
+            String name = ship.getName();
+            if (ship.getId() > 40 && ship.getId() % 97 != 0) {
+                continue;
+            }
+            for (int length = 1; length <= 5; length++) {
+                for (int from = 0; from + length <= name.length(); from += 2) {
+                    String term = name.substring(from, from + length);
+                    terms.add(term);
+                    terms.add(term.toLowerCase(Locale.ROOT));
+                    terms.add(term.toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        terms.add("Seed 1");
+        terms.add("Seed 1%");
+        terms.add("S_ed");
+        terms.add("%");
+        terms.add("Nothing like it");
+
+        for (String term : terms) {
+            assertEquals("Поиск по индексу name=" + term + " должен совпадать с LIKE.",
+                    ids(shipService.selectByName(term)), ids(shipService.selectByFilter(filter(term, null))));
+        }
+        for (String planet : new String[]{"a", "ar", "Mar", "mar", "tur", "Venus", "Pluto", "M_rs"}) {
+            for (String name : new String[]{"e", "Seed 2", "ion", "ION"}) {
+                assertEquals("Поиск по индексу name=" + name + ", planet=" + planet + " должен совпадать с LIKE.",
+                        ids(shipService.selectByName(name).and(shipService.selectByPlanet(planet))),
+                        ids(shipService.selectByFilter(filter(name, planet))));
+            }
+        }
+    }
+
+    //test2
+    @Test
+    public void indexResolvesSelectiveTermsWithoutLike() {
+        ShipTextIndex.Lookup lookup = context.getBean(ShipTextIndex.class).lookup("Orion", "Mars");
+        assertTrue(lookup.isSelective());
+        assertTrue(lookup.isNameResolved());
+        assertTrue(lookup.isPlanetResolved());
+        assertEquals(1, lookup.getIds().size());
+
+        assertFalse(context.getBean(ShipTextIndex.class).lookup("Or%n", null).isSelective());
+    }
+
+    //test3
+    @Test
+    public void indexFollowsCreateUpdateAndDelete() throws Exception {
+        String created = perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Zyx Quasar\",\"planet\":\"Eris\",\"shipType\":\"MILITARY\"," +
+                        "\"prodDate\":32998274577071,\"speed\":0.8,\"crewSize\":14}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = Long.parseLong(created.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+        assertEquals("Созданный корабль должен находиться по подстроке имени.", 1, count("?name=Quasar"));
+        assertEquals(1, count("?planet=Eri"));
+
+        perform(post("/rest/ships/" + id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Zyx Pulsar\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals("После обновления старое имя не должно находиться.", 0, count("?name=Quasar"));
+        assertEquals("После обновления новое имя должно находиться.", 1, count("?name=Pulsar"));
+        assertEquals(1, count("?planet=Eri"));
+
+        perform(delete("/rest/ships/" + id)).andExpect(status().isOk());
+
+        assertEquals("Удалённый корабль не должен находиться.", 0, count("?name=Pulsar"));
+        assertEquals(0, count("?planet=Eri"));
+    }
+
+    //test4
+    @Test
+    public void idsBeyondIntRangeAreIndexed() {
+        Ship ship = new Ship();
+        ship.setId(5_000_000_000L);
+        ship.setName("Far Away Beacon");
+        ship.setPlanet("Kuiper");
+        context.publishEvent(ShipChangeEvent.created(ship));
+
+        ShipTextIndex.Lookup lookup = context.getBean(ShipTextIndex.class).lookup("Beacon", "Kuiper");
+        assertEquals(Collections.singletonList(5_000_000_000L), lookup.getIds());
+
+        context.publishEvent(ShipChangeEvent.deleted(ship));
+        assertTrue(context.getBean(ShipTextIndex.class).lookup("Beacon", null).getIds().isEmpty());
+    }
+
+    //test5
+    @Test
+    public void lookupFallsBackToLikeWhileLoading() {
+        ShipTextIndex index = context.getBean(ShipTextIndex.class);
+        CountDownLatch release = holdShipLoader();
+        try {
+            context.publishEvent(ShipChangeEvent.reloaded());
+            assertFalse("Индекс не должен отвечать, пока перечитывается.", index.lookup("Orion", null).isSelective());
+            assertEquals(ids(shipService.selectByName("Orion")), ids(shipService.selectByFilter(filter("Orion", null))));
+        } finally {
+            release.countDown();
+        }
+        awaitIndex();
+        assertTrue(index.lookup("Orion", null).isSelective());
+    }
+
+    //test6
+    @Test
+    public void collatedLookupKeepsValuesTheFoldCannotCollate() {
+        // as in production, where MySQL's *_general_ci collation also equates ß with s
+        ShipTextIndex index = new ShipTextIndex(context.getBean(DataSource.class), Runnable::run, true);
+        index.start();
+        Ship ship = new Ship();
+        ship.setId(5_000_000_001L);
+        ship.setName("Große Bär");
+        ship.setPlanet("Mars");
+        index.onShipChange(ShipChangeEvent.created(ship));
+
+        ShipTextIndex.Lookup lookup = index.lookup("grose", null);
+        assertEquals("Значение вне ASCII должно оставаться кандидатом для LIKE.",
+                Collections.singletonList(5_000_000_001L), lookup.getIds());
+        assertFalse(lookup.isNameResolved());
+        assertTrue(index.lookup("ORION", null).getIds().containsAll(Arrays.asList(1L, 5_000_000_001L)));
+        assertTrue(index.lookup("BAR", null).getIds().contains(5_000_000_001L));
+        assertFalse("Термин вне ASCII должен уходить в LIKE.", index.lookup("Groß", null).isSelective());
+    }
+
+    private void awaitIndex() {
+        ShipTextIndex index = context.getBean(ShipTextIndex.class);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!index.isLoaded()) {
+            assertTrue("Индекс не загрузился за 10 секунд.", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private List<Long> ids(Specification<Ship> specification) {
+        List<Long> ids = new ArrayList<>();
+        for (Ship ship : shipRepository.findAll(specification)) {
+            ids.add(ship.getId());
+        }
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+
+    private static ShipFilter filter(String name, String planet) {
+        return new ShipFilter(name, planet, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private int count(String query) throws Exception {
+        String content = perform(get("/rest/ships/count" + query)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
@@ -0,0 +1,196 @@
+package com.space.controller.utils;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import com.space.model.Ship;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Writes ShipDataset rows straight through JDBC, bypassing Hibernate and the service layer.
+// INSERT sends 1000-row INSERT statements and works everywhere. CSV streams one generated CSV document through
+// MySQL's LOAD DATA LOCAL INFILE (needs allowLoadLocalInfile=true on the URL and local_infile on the server);
+// H2 reads CSV only from files and is faster with the inserts.
+// The V2 secondary indexes are dropped for the load and rebuilt from the migration script afterwards, which is
+// several times faster than maintaining them row by row.
+public class ShipBulkLoader {
+    public enum Mode {INSERT, CSV}
+
+    private static final String COLUMNS = "name, planet, shipType, prodDate, isUsed, speed, crewSize, rating";
+    private static final String INDEX_SCRIPT = "db/migration/V2__add_ship_filter_indexes.sql";
+    private static final Pattern INDEX_NAME = Pattern.compile("CREATE INDEX (\\w+) ON");
+    private static final int ROWS_PER_STATEMENT = 1000;
+    private static final int ROWS_PER_COMMIT = 50_000;
+
+    private final DataSource dataSource;
+
+    public ShipBulkLoader(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Loads dataset ships first .. first + rows - 1 and returns the number of rows inserted.
+    public long load(ShipDataset dataset, long first, long rows, Mode mode) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean mySql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            if (mode == Mode.CSV && !mySql) {
+                throw new IllegalArgumentException("CSV bulk load needs MySQL's LOAD DATA LOCAL INFILE");
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            dropIndexes(connection, mySql);
+            connection.setAutoCommit(false);
+            try {
+                long loaded = mode == Mode.INSERT ? insert(connection, dataset, first, rows)
+                        : loadDataInfile(connection, dataset, first, rows);
+                connection.commit();
+                return loaded;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource(INDEX_SCRIPT));
+            }
+        }
+    }
+
+    private static void dropIndexes(Connection connection, boolean mySql) throws SQLException, IOException {
+        String script = StreamUtils.copyToString(new ClassPathResource(INDEX_SCRIPT).getInputStream(), StandardCharsets.UTF_8);
+        try (Statement statement = connection.createStatement()) {
+            for (Matcher matcher = INDEX_NAME.matcher(script); matcher.find(); ) {
+                statement.execute("DROP INDEX " + matcher.group(1) + (mySql ? " ON ship" : ""));
+            }
+        }
+    }
+
+    private long insert(Connection connection, ShipDataset dataset, long first, long rows) throws SQLException {
+        long loaded = 0;
+        try (PreparedStatement full = connection.prepareStatement(insertSql(ROWS_PER_STATEMENT))) {
+            while (loaded < rows) {
+                int count = (int) Math.min(ROWS_PER_STATEMENT, rows - loaded);
+                if (count == ROWS_PER_STATEMENT) {
+                    bind(full, dataset, first + loaded, count);
+                    full.executeUpdate();
+                } else {
+                    try (PreparedStatement tail = connection.prepareStatement(insertSql(count))) {
+                        bind(tail, dataset, first + loaded, count);
+                        tail.executeUpdate();
+                    }
+                }
+                loaded += count;
+                if (loaded % ROWS_PER_COMMIT == 0) {
+                    connection.commit();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ship(" + COLUMNS + ") VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement statement, ShipDataset dataset, long first, int rows) throws SQLException {
+        int parameter = 1;
+        for (int i = 0; i < rows; i++) {
+            Ship ship = dataset.ship(first + i);
+            statement.setString(parameter++, ship.getName());
+            statement.setString(parameter++, ship.getPlanet());
+            statement.setString(parameter++, ship.getShipType().name());
+            statement.setDate(parameter++, new java.sql.Date(ship.getProdDate().getTime()));
+            statement.setBoolean(parameter++, ship.getUsed());
+            statement.setDouble(parameter++, ship.getSpeed());
+            statement.setInt(parameter++, ship.getCrewSize());
+            statement.setDouble(parameter++, ship.getRating());
+        }
+    }
+
+    private static long loadDataInfile(Connection connection, ShipDataset dataset, long first, long rows) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(new CsvStream(dataset, first, rows));
+            return statement.executeUpdate("LOAD DATA LOCAL INFILE 'ships.csv' INTO TABLE ship CHARACTER SET utf8mb4 "
+                    + "FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' LINES TERMINATED BY '\\n' "
+                    + "(name, planet, shipType, prodDate, @isUsed, speed, crewSize, rating) SET isUsed = (@isUsed = 'true')");
+        }
+    }
+
+    // The rows as headerless CSV, generated as they are read; names and planets are always quoted.
+    private static final class CsvStream extends InputStream {
+        private final ShipDataset dataset;
+        private final long end;
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        private final StringBuilder line = new StringBuilder(128);
+        private long next;
+        private byte[] buffer = new byte[0];
+        private int position;
+
+        CsvStream(ShipDataset dataset, long first, long rows) {
+            this.dataset = dataset;
+            this.next = first;
+            this.end = first + rows;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int copied = 0;
+            while (copied < length && fill()) {
+                int count = Math.min(length - copied, buffer.length - position);
+                System.arraycopy(buffer, position, target, offset + copied, count);
+                position += count;
+                copied += count;
+            }
+            return copied == 0 ? -1 : copied;
+        }
+
+        private boolean fill() {
+            if (position < buffer.length) {
+                return true;
+            }
+            if (next == end) {
+                return false;
+            }
+            Ship ship = dataset.ship(next++);
+            line.setLength(0);
+            quote(ship.getName()).append(',');
+            quote(ship.getPlanet()).append(',')
+                    .append(ship.getShipType().name()).append(',')
+                    .append(dateFormat.format(ship.getProdDate())).append(',')
+                    .append(ship.getUsed()).append(',')
+                    .append(ship.getSpeed()).append(',')
+                    .append(ship.getCrewSize()).append(',')
+                    .append(ship.getRating()).append('\n');
+            buffer = line.toString().getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+
+        private StringBuilder quote(String value) {
+            return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
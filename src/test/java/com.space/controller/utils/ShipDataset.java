@@ -0,0 +1,181 @@
+package com.space.controller.utils;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.service.ShipRating;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+// Reproducible synthetic ships that pass every ShipServiceImpl check and carry the rating computeRating would give.
+// Ship `index` depends only on the seed, the distributions and the index, so any range of rows can be generated
+// (or regenerated) on its own, in any order.
+// Distributions are weight lists: planets("Mars=5,Earth=3"), shipTypes("MILITARY=1,MERCHANT=2"),
+// years("2800-2899=1,2900-3019=4"); speed is a normal distribution clipped to 0.01..0.99.
+public class ShipDataset {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double LOG_MAX_CREW = Math.log(10_000);
+    private static final String[] PREFIXES = {"Orion", "Daedalus", "Eagle", "Excalibur", "Explorer", "Icarus", "Hermes",
+            "Odyssey", "Serenity", "Aries", "Hunter", "Scorpio", "Excelsior", "Nostromo", "Rocinante", "Endurance",
+            "Pegasus", "Valkyrie", "Aurora", "Nomad", "Prometheus", "Zephyr", "Halcyon", "Kestrel"};
+    private static final String[] SUFFIXES = {"", " I", " II", " III", " IV", " IX", " Jet", " Hawk", " Mongoose",
+            " Transporter", " Prime", " Ib", " E-X-1", " Mk II", " Star", " Voyager"};
+
+    private final long seed;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private Weights<String> planets = Weights.parse("Mars=5,Earth=5,Jupiter=3,Saturn=3,Venus=2,Neptune=2,Mercury=1,"
+            + "Uranus=1,Pluto=1,Ceres=1", Function.identity());
+    private Weights<ShipType> shipTypes = Weights.parse("TRANSPORT=1,MILITARY=1,MERCHANT=1", ShipType::valueOf);
+    private Weights<int[]> years = Weights.parse("2800-3019=1", ShipDataset::yearRange);
+    private double speedMean = 0.5;
+    private double speedDeviation = 0.2;
+    private double usedShare = 0.5;
+
+    public ShipDataset(long seed) {
+        this.seed = seed;
+    }
+
+    public ShipDataset planets(String weights) {
+        planets = Weights.parse(weights, planet -> {
+            if (planet.isEmpty() || planet.length() > 50) {
+                throw new IllegalArgumentException("Planet must have 1..50 characters: " + planet);
+            }
+            return planet;
+        });
+        return this;
+    }
+
+    public ShipDataset shipTypes(String weights) {
+        shipTypes = Weights.parse(weights, ShipType::valueOf);
+        return this;
+    }
+
+    public ShipDataset years(String weights) {
+        years = Weights.parse(weights, ShipDataset::yearRange);
+        return this;
+    }
+
+    public ShipDataset speed(double mean, double deviation) {
+        speedMean = mean;
+        speedDeviation = deviation;
+        return this;
+    }
+
+    public ShipDataset usedShare(double share) {
+        usedShare = share;
+        return this;
+    }
+
+    public Ship ship(long index) {
+        Draws draws = new Draws(seed, index);
+        Ship ship = new Ship();
+        ship.setName(PREFIXES[draws.nextInt(PREFIXES.length)] + SUFFIXES[draws.nextInt(SUFFIXES.length)]
+                + (draws.nextInt(4) == 0 ? " " + (1 + draws.nextInt(999)) : ""));
+        ship.setPlanet(planets.pick(draws.nextDouble()));
+        ship.setShipType(shipTypes.pick(draws.nextDouble()));
+
+        int[] range = years.pick(draws.nextDouble());
+        int year = range[0] + draws.nextInt(range[1] - range[0] + 1);
+        LocalDate day = LocalDate.ofYearDay(year, 1 + draws.nextInt(Year.isLeap(year) ? 366 : 365));
+        ship.setProdDate(new Date(day.atStartOfDay(zone).toInstant().toEpochMilli()));
+
+        ship.setUsed(draws.nextDouble() < usedShare);
+        ship.setSpeed(speed(draws));
+        ship.setCrewSize(Math.min(9999, Math.max(1, (int) Math.exp(draws.nextDouble() * LOG_MAX_CREW))));
+        ship.setRating(ShipRating.rating(ship.getSpeed(), ship.getUsed(), year));
+        return ship;
+    }
+
+    // Box-Muller, redrawn while outside the valid range, rounded to hundredths like the speeds users enter
+    private double speed(Draws draws) {
+        for (int attempt = 0; attempt < 16; attempt++) {
+            double gaussian = Math.sqrt(-2 * Math.log(1 - draws.nextDouble())) * Math.cos(2 * Math.PI * draws.nextDouble());
+            double speed = Math.round((speedMean + gaussian * speedDeviation) * 100) / 100.0;
+            if (speed >= 0.01 && speed <= 0.99) {
+                return speed;
+            }
+        }
+        return Math.min(0.99, Math.max(0.01, Math.round(speedMean * 100) / 100.0));
+    }
+
+    private static int[] yearRange(String range) {
+        String[] bounds = range.split("-");
+        int from = Integer.parseInt(bounds[0].trim());
+        int to = Integer.parseInt(bounds[bounds.length - 1].trim());
+        if (from < 2800 || to > 3019 || from > to) {
+            throw new IllegalArgumentException("Years must lie within 2800..3019: " + range);
+        }
+        return new int[]{from, to};
+    }
+
+    // SplitMix64 started from (seed, index): cheap, stateless across rows and well mixed for adjacent indexes
+    private static final class Draws {
+        private long state;
+
+        Draws(long seed, long index) {
+            state = mix(seed ^ mix(index * GOLDEN_GAMMA));
+        }
+
+        double nextDouble() {
+            return (next() >>> 11) * 0x1.0p-53;
+        }
+
+        int nextInt(int bound) {
+            return (int) ((next() >>> 33) * bound >>> 31);
+        }
+
+        private long next() {
+            state += GOLDEN_GAMMA;
+            return mix(state);
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    private static final class Weights<T> {
+        private final List<T> values = new ArrayList<>();
+        private double[] cumulative = new double[0];
+
+        static <T> Weights<T> parse(String spec, Function<String, T> value) {
+            Weights<T> weights = new Weights<>();
+            double total = 0;
+            for (String entry : spec.split(",")) {
+                int equals = entry.lastIndexOf('=');
+                double weight = equals < 0 ? 1 : Double.parseDouble(entry.substring(equals + 1).trim());
+                if (weight <= 0) {
+                    continue;
+                }
+                weights.values.add(value.apply((equals < 0 ? entry : entry.substring(0, equals)).trim()));
+                weights.cumulative = Arrays.copyOf(weights.cumulative, weights.values.size());
+                total += weight;
+                weights.cumulative[weights.values.size() - 1] = total;
+            }
+            if (weights.values.isEmpty()) {
+                throw new IllegalArgumentException("No positive weights in " + spec);
+            }
+            for (int i = 0; i < weights.cumulative.length; i++) {
+                weights.cumulative[i] /= total;
+            }
+            return weights;
+        }
+
+        T pick(double fraction) {
+            for (int i = 0; i < cumulative.length - 1; i++) {
+                if (fraction < cumulative[i]) {
+                    return values.get(i);
+                }
+            }
+            return values.get(values.size() - 1);
+        }
+    }
+}
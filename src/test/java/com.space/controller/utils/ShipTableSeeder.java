@@ -0,0 +1,27 @@
+package com.space.controller.utils;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+public class ShipTableSeeder {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShipTableSeeder(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    // Appends `rows` synthetic ships in one INSERT ... SELECT, spreading every filterable column.
+    public void seed(int rows) {
+        jdbcTemplate.update("INSERT INTO ship(name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) " +
+                "SELECT CONCAT('Seed ', X), " +
+                "CASE MOD(X, 4) WHEN 0 THEN 'Mars' WHEN 1 THEN 'Earth' WHEN 2 THEN 'Saturn' ELSE 'Venus' END, " +
+                "CASE MOD(X, 3) WHEN 0 THEN 'MERCHANT' WHEN 1 THEN 'MILITARY' ELSE 'TRANSPORT' END, " +
+                "DATEADD('YEAR', MOD(X, 220), DATE '2800-01-01'), " +
+                "MOD(X, 2) = 0, " +
+                "(1 + MOD(X * 7, 99)) / 100.0, " +
+                "1 + MOD(X * 13, 9999), " +
+                "MOD(X * 31, 2000) / 100.0 " +
+                "FROM SYSTEM_RANGE(1, " + rows + ")");
+    }
+}